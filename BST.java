@@ -1,21 +1,63 @@
 import java.io.*;
 import java.math.*;
 import java.util.Scanner;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.NoSuchElementException;
 import java.text.DecimalFormat;
 
 /*****************************************************
- *The binary search tree class, with a hash table.
+ *The binary search tree class, with a counting Bloom filter.
  *This instance has been modified to only use strings.
+ *The tree is kept balanced as an AVL tree, so its depth stays 
+ *logarithmic even when the words are added in sorted order.
  ******************************************************/
-class BST {
+class BST implements Dictionary {
     private BSTNode root;
-    protected boolean[] hashValues = new boolean[150000];
+    private CountingBloomFilter filter;
+    private double falsePositiveRate;
+    private long version; //Counts the changes to the tree
+    private int size; //The number of nodes in the tree
+    private Statistics statistics; //Computed on demand, see statistics()
+
+	/*****************************************************
+	 *Statistics about the shape of the tree, computed in one traversal.
+	 ******************************************************/
+	static final class Statistics {
+		final long version; //The version of the tree they were computed for
+		final int depth;
+		final int[] nodesPerDepth;
+		final double averageDepth;
+
+		Statistics(long version, int depth, int[] nodesPerDepth, 
+				   double averageDepth) {
+			this.version = version;
+			this.depth = depth;
+			this.nodesPerDepth = nodesPerDepth;
+			this.averageDepth = averageDepth;
+		}
+	}
+
+	/*****************************************************
+	 *Creates an empty tree whose filter has the default false positive rate.
+	 ******************************************************/
+    BST() {
+		this(BloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+	/*****************************************************
+	 *Creates an empty tree.
+	 *@param falsePositiveRate the wanted false positive rate of the filter.
+	 ******************************************************/
+    BST(double falsePositiveRate) {
+		this.falsePositiveRate = falsePositiveRate;
+		filter = new CountingBloomFilter(1024, falsePositiveRate);
+    }
 		
     class BSTNode {
 		BSTNode left,right, parent;
 		String word;
+		int height = 1;
 		BSTNode(String s) {
 			word = s;
 			parent = null;
@@ -23,22 +65,111 @@ class BST {
 
 		/*******************************************************
 		 *Used recursively to traverse through the tree to 
-		 *find the appropriate spot for a new object. 
+		 *find the appropriate spot for a new object, rebalancing 
+		 *the subtree on the way back up. Duplicates are ignored.
 		 *May also be used on a subtree.
 		 *@param x the object to be added to the tree.
+		 *@return the root of this subtree after rebalancing.
+		 ******************************************************/
+		protected BSTNode add(BSTNode x) {
+			int cmp = x.word.compareTo(word);
+
+			if (cmp < 0) {
+				if (left == null) left = x;
+				else left = left.add(x);
+				left.parent = this;
+			} else if (cmp > 0) {
+				if (right == null) right = x;
+				else right = right.add(x);
+				right.parent = this;
+			} else return this;
+
+			return rebalance();
+		}
+
+		/*******************************************************
+		 *Recalculates the height of this node from its children.
+		 ******************************************************/
+		void updateHeight() {
+			int l = (left == null) ? 0 : left.height;
+			int r = (right == null) ? 0 : right.height;
+
+			height = ((l > r) ? l : r) + 1;
+		}
+
+		/*******************************************************
+		 *Gets the difference in height between the left and the 
+		 *right subtree of this node.
+		 *@return the balance factor of this node.
+		 ******************************************************/
+		int balance() {
+			return ((left == null) ? 0 : left.height) - 
+				((right == null) ? 0 : right.height);
+		}
+
+		/*******************************************************
+		 *Rotates this node down to the right, making its left 
+		 *child the root of the subtree.
+		 *@return the new root of the subtree.
+		 ******************************************************/
+		BSTNode rotateRight() {
+			BSTNode l = left;
+
+			left = l.right;
+			if (left != null) left.parent = this;
+			l.right = this;
+			l.parent = parent;
+			parent = l;
+			updateHeight();
+			l.updateHeight();
+
+			return l;
+		}
+
+		/*******************************************************
+		 *Rotates this node down to the left, making its right 
+		 *child the root of the subtree.
+		 *@return the new root of the subtree.
+		 ******************************************************/
+		BSTNode rotateLeft() {
+			BSTNode r = right;
+
+			right = r.left;
+			if (right != null) right.parent = this;
+			r.left = this;
+			r.parent = parent;
+			parent = r;
+			updateHeight();
+			r.updateHeight();
+
+			return r;
+		}
+
+		/*******************************************************
+		 *Restores the AVL property of this subtree after one of 
+		 *its children has grown or shrunk by one level.
+		 *@return the new root of the subtree.
 		 ******************************************************/
-		protected void add(BSTNode x) {
-			if (x.word.compareTo(word) < 0) {
-				if (left == null) {
-					left = x;
+		BSTNode rebalance() {
+			updateHeight();
+
+			int b = balance();
+
+			if (b > 1) {
+				if (left.balance() < 0) {
+					left = left.rotateLeft();
 					left.parent = this;
-				} else left.add(x);
-			} else {
-				if (right == null) {
-					right = x;
+				}
+				return rotateRight();
+			} else if (b < -1) {
+				if (right.balance() > 0) {
+					right = right.rotateRight();
 					right.parent = this;
-				} else right.add(x);
+				}
+				return rotateLeft();
 			}
+
+			return this;
 		}
 
 		/***********************************************************************
@@ -111,45 +242,49 @@ class BST {
 
 		/************************************************************************
 		 *Used recursively to traverse through the tree to find and remove a 
-		 *node with the specified data.
+		 *node with the specified data, rebalancing the subtree on the way 
+		 *back up.
 		 *May also be used on a subtree.
 		 *@param s the data to be removed from the tree.
+		 *@return the root of this subtree after the removal, or null if the 
+		 *subtree became empty.
 		 ***********************************************************************/
-		protected void remove(String s) {
-			if (s.compareTo(word) < 0) {
-				if (left != null) left.remove(s);
-			} else if (s.compareTo(word) > 0) {
-				if (right != null) right.remove(s);
+		protected BSTNode remove(String s) {
+			int cmp = s.compareTo(word);
+
+			if (cmp < 0) {
+				if (left != null) {
+					left = left.remove(s);
+					if (left != null) left.parent = this;
+				}
+			} else if (cmp > 0) {
+				if (right != null) {
+					right = right.remove(s);
+					if (right != null) right.parent = this;
+				}
 			} else {
 				if (left != null && right != null) {
 					word = right.getMin();
-					right.remove(word);
-				} else if (parent.left == this)  {
-					parent.left = (left != null) ? left : right;
-				} else if (parent.right == this) {
-					parent.left = (left != null) ? left : right;
+					right = right.remove(word);
+					if (right != null) right.parent = this;
+				} else {
+					BSTNode child = (left != null) ? left : right;
+
+					if (child != null) child.parent = parent;
+					return child;
 				}
 			}
+
+			return rebalance();
 		}
 	
 		/***********************************************************************
-		 *Used recursively to traverse through the tree to find the greatest 
-		 *depth of the tree.
-		 *May also be used on a subtree.
+		 *Gets the greatest depth of the subtree below this node. 
+		 *The height is kept up to date by add() and remove(), so this no 
+		 *longer needs to traverse the subtree.
 		 ***********************************************************************/
 		public int getGreatestDepth() {
-			int leftDepth = 0; 
-			int rightDepth = 0;
-
-			if (left == null && right == null) return 1;
-
-			if (left != null) leftDepth = left.getGreatestDepth() + 1;
-			else leftDepth = 0;
-	    
-			if (right != null) rightDepth = right.getGreatestDepth() + 1;
-			else rightDepth = 0;
-
-			return (leftDepth > rightDepth) ? leftDepth : rightDepth;
+			return height;
 		}
 	
 		/************************************
@@ -169,31 +304,123 @@ class BST {
 		}
     }
 
-	/**********************************************************
-	 *Generates a hash value from a string parameter.
-	 *@param s the string that will be used to generate a hash value.
-	 *@return the generated hash value.
-	 ***********************************************************/
-    public int hash(String s) {
-		int hashVal = 1;
-	
-		for (int i = 0; i < s.length(); i++) {
-			hashVal = 37 * hashVal + (int) s.charAt(i);
-		}
-	
-		return Math.abs(hashVal % hashValues.length);
-    } 
-	
 	/************************************************
-	 *Adds a node with the specified data to the tree.
+	 *Adds a node with the specified data to the tree, 
+	 *and the data to the filter. The filter is resized when it holds 
+	 *more data than it was sized for.
 	 *@param s the data to be added
 	 *************************************************/
     public void add(String s) {
-		BSTNode x = new BSTNode(new String(s));
+		if (contains(s)) return;
+
+		BSTNode x = new BSTNode(s);
 		if (root == null) {
 			root = x;
-		} else root.add(x);
+		} else root = root.add(x);
+		root.parent = null;
+
+		size++;
+		version++;
+		filter.add(s);
+		if (filter.count() > filter.capacity()) {
+			rebuildFilter(2 * filter.count());
+		}
     }
+
+	/***************************************************************************
+	 *Adds all the specified data to the tree at once, building a perfectly 
+	 *balanced tree in linear time. The data is sorted first unless it 
+	 *already is, and duplicates are dropped. Data already in the tree is 
+	 *merged with the new data.
+	 *@param words the data to be added
+	 ***************************************************************************/
+    public void addAll(String[] words) {
+		String[] sorted = words.clone();
+		boolean isSorted = true;
+
+		for (int i = 1; i < sorted.length && isSorted; i++) {
+			if (sorted[i - 1].compareTo(sorted[i]) > 0) isSorted = false;
+		}
+		if (!isSorted) Arrays.sort(sorted);
+
+		if (root != null) sorted = merge(toArray(), sorted);
+
+		int n = 0;
+
+		for (int i = 0; i < sorted.length; i++) {
+			if (n == 0 || !sorted[i].equals(sorted[n - 1])) {
+				sorted[n++] = sorted[i];
+			}
+		}
+
+		root = build(sorted, 0, n, null);
+		size = n;
+		version++;
+		filter = new CountingBloomFilter(n, falsePositiveRate);
+
+		for (int i = 0; i < n; i++) {
+			filter.add(sorted[i]);
+		}
+    }
+
+	/***************************************************************************
+	 *Builds a balanced subtree from a sorted range of data, by making the 
+	 *middle element the root and building its subtrees from the halves.
+	 *@param words the sorted data
+	 *@param from the start of the range, inclusive
+	 *@param to the end of the range, exclusive
+	 *@param parent the parent of the subtree
+	 *@return the root of the subtree, or null if the range is empty
+	 ***************************************************************************/
+	private BSTNode build(String[] words, int from, int to, BSTNode parent) {
+		if (from >= to) return null;
+
+		int mid = (from + to) >>> 1;
+		BSTNode x = new BSTNode(words[mid]);
+
+		x.parent = parent;
+		x.left = build(words, from, mid, x);
+		x.right = build(words, mid + 1, to, x);
+		x.updateHeight();
+
+		return x;
+	}
+
+	/***************************************************************************
+	 *Merges two sorted arrays into one sorted array.
+	 *@param a the first sorted array
+	 *@param b the second sorted array
+	 *@return the merged array
+	 ***************************************************************************/
+	private static String[] merge(String[] a, String[] b) {
+		String[] merged = new String[a.length + b.length];
+		int i = 0, j = 0, k = 0;
+
+		while (i < a.length && j < b.length) {
+			if (a[i].compareTo(b[j]) <= 0) merged[k++] = a[i++];
+			else merged[k++] = b[j++];
+		}
+		while (i < a.length) merged[k++] = a[i++];
+		while (j < b.length) merged[k++] = b[j++];
+
+		return merged;
+	}
+
+	/******************************************
+	 *Gets the data in the tree in sorted order.
+	 *@return an array with the data in the tree.
+	 ******************************************/
+	private String[] toArray() {
+		String[] words = new String[size()];
+		Iterator<BSTNode> iter = iterator();
+		int i = 0;
+
+		while (iter.hasNext()) {
+			words[i++] = iter.next().word;
+		}
+
+		return words;
+	}
     
 	/************************************************
 	 *Checks if the tree contains the specified data
@@ -201,42 +428,154 @@ class BST {
 	 *@return true if the data is in the tree, false if not.
 	 *************************************************/
     public boolean contains(String s) {
-		if (s.compareTo(root.word) == 0) return true;
+		if (root == null) return false;
 		else return root.find(s);
     }
 	
+	/*************************************************************************
+	 *Checks if the tree contains the data made up of the first characters 
+	 *of an array. Walks down from the root without creating a string.
+	 *@param word the characters of the data.
+	 *@param length the length of the data.
+	 *@return true if the data is in the tree, false if not.
+	 *************************************************************************/
+    public boolean contains(char[] word, int length) {
+		BSTNode x = root;
+
+		while (x != null) {
+			int cmp = compare(word, length, x.word);
+
+			if (cmp == 0) return true;
+			x = (cmp < 0) ? x.left : x.right;
+		}
+
+		return false;
+    }
+
+	/*************************************************************************
+	 *Checks which of a number of sorted words are in the tree, in one 
+	 *walk. Each node splits the words between its subtrees, so the path 
+	 *from the root is only walked once for all the words below a node, 
+	 *and subtrees that no word falls into are never visited.
+	 *@param words the words, in sorted order. Duplicates are allowed.
+	 *@param n the number of words.
+	 *@param found receives true for each word that is in the tree.
+	 *************************************************************************/
+    public void containsAll(String[] words, int n, boolean[] found) {
+		Arrays.fill(found, 0, n, false);
+		containsAll(root, words, 0, n, found);
+    }
+
+	/*************************************************************************
+	 *Looks up the words from one index to another in a subtree.
+	 *************************************************************************/
+	private static void containsAll(BSTNode x, String[] words, int from, 
+									int to, boolean[] found) {
+		while (x != null && from < to) {
+			if (to - from == 1) {
+				//A single word is just searched for.
+				found[from] = x.find(words[from]);
+				return;
+			}
+
+			//The first word that is not less than the node.
+			int lo = from, hi = to;
+
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+
+				if (words[mid].compareTo(x.word) < 0) lo = mid + 1;
+				else hi = mid;
+			}
+
+			int equal = lo;
+
+			while (equal < to && words[equal].equals(x.word)) {
+				found[equal++] = true;
+			}
+
+			//The larger side is walked in the loop, the other recursively, 
+			//so the recursion is no deeper than the tree.
+			if (lo - from < to - equal) {
+				containsAll(x.left, words, from, lo, found);
+				x = x.right;
+				from = equal;
+			} else {
+				containsAll(x.right, words, equal, to, found);
+				x = x.left;
+				to = lo;
+			}
+		}
+	}
+
+	/*************************************************************************
+	 *Compares the first characters of an array with a string, the same way 
+	 *as String.compareTo().
+	 *@return a negative number, zero or a positive number if the characters 
+	 *are less than, equal to or greater than the string.
+	 *************************************************************************/
+	static int compare(char[] word, int length, String s) {
+		int n = Math.min(length, s.length());
+
+		for (int i = 0; i < n; i++) {
+			int d = word[i] - s.charAt(i);
+
+			if (d != 0) return d;
+		}
+
+		return length - s.length();
+	}
+
+	/*************************************************************************
+	 *Checks the filter for the specified data.
+	 *@param s the data to be checked.
+	 *@return false if the data is definitely not in the tree.
+	 *************************************************************************/
+    public boolean mightContain(String s) {
+		return filter.mightContain(s);
+    }
+
+	/*************************************************************************
+	 *Checks the filter for data with the specified hash value.
+	 *@param hash the hash value of the data.
+	 *@return false if the data is definitely not in the tree.
+	 *************************************************************************/
+    public boolean mightContainHash(long hash) {
+		return filter.mightContainHash(hash);
+    }
+
 	/****************************************
-	 *Removes the node with the specified data
+	 *Removes the node with the specified data, and the data from the filter.
 	 *@param s the data to be removed
 	 ******************************************/
     public void remove(String s) {
-		if (root != null) {
-			if (s.compareTo(root.word) == 0) {
-				BSTNode temp = new BSTNode("");
-				temp.left = root;
-				root.parent = temp;
-				root.remove(s);
-				root = temp.left;
-			} else root.remove(s);
-		}
-		hashValues[hash(s)] = false;
-		assertHashValues();
+		if (!contains(s)) return;
+
+		root = root.remove(s);
+		if (root != null) root.parent = null;
+		size--;
+		version++;
+		filter.remove(s);
     }
 	
 	/***************************************************************************
-	 *Reconfirms the hash values of the data in the tree to be present in the 
-	 *hash table.
-	 *Used because the remove() method runs a risk of removing a common hash 
-	 *value between two or more words.
+	 *Rebuilds the filter from the data in the tree.
+	 *Used when the filter holds more data than it was sized for.
+	 *@param capacity the number of words the new filter should be sized for.
 	 ***************************************************************************/
-	private void assertHashValues() {
-		Iterator<BSTNode> iter = iterator();
-		BSTNode temp = null;
-	
-		while (iter.hasNext()) {
-			temp = iter.next();
-			hashValues[hash(temp.word)] = true;
-		} 
+	private void rebuildFilter(int capacity) {
+		filter = new CountingBloomFilter(capacity, falsePositiveRate);
+		if (root != null) addToFilter(root);
+	}
+
+	/***************************************************************************
+	 *Used recursively to add the data of a subtree to the filter.
+	 *@param x the root of the subtree.
+	 ***************************************************************************/
+	private void addToFilter(BSTNode x) {
+		if (x.left != null) addToFilter(x.left);
+		filter.add(x.word);
+		if (x.right != null) addToFilter(x.right);
 	}
 	
 	/*******************************
@@ -244,7 +583,7 @@ class BST {
 	 *@return the depth of the tree
 	 *******************************/
     public int depth() {
-		return root.getGreatestDepth();
+		return (root == null) ? 0 : root.getGreatestDepth();
     }
 	
 	/*******************************************************
@@ -252,17 +591,7 @@ class BST {
 	 *@return an int array with the frequencies.
 	 *******************************************************/
 	public int[] depthOfAllNodes() {
-		int[] DOAN = new int[depth()];
-		Iterator<BSTNode> iter = iterator();
-		BSTNode temp = null;
-		int i = 0;
-
-		while (iter.hasNext()) {
-			temp = iter.next();
-			DOAN[temp.depth() - 1]++;
-		} 
-	
-		return DOAN;
+		return statistics().nodesPerDepth.clone();
     }
 	
 	/******************************************
@@ -270,7 +599,7 @@ class BST {
 	 *@return the number of nodes in the tree.
 	 ******************************************/
     public int size() {
-		return root.count();
+		return size;
     }	
 	
 	/*******************************************************
@@ -278,16 +607,53 @@ class BST {
 	 *@return the average depth of all nodes in the tree.
 	 ********************************************************/
     public double averageDepth() {
-		double avrg = 0;
-		int[] DOAN = depthOfAllNodes();
+		return statistics().averageDepth;
+    }
 
-		for (int i = 0; i < DOAN.length; i++) {
-			avrg = avrg + (DOAN[i] * (i + 1));
+	/*******************************************************
+	 *Gets statistics about the shape of the tree. They are computed the 
+	 *first time they are needed, in one walk through the tree with an 
+	 *explicit stack, and kept until the tree is changed.
+	 *@return the statistics.
+	 ********************************************************/
+	Statistics statistics() {
+		Statistics stats = statistics;
+
+		if (stats != null && stats.version == version) return stats;
+
+		int depth = depth();
+		int[] nodesPerDepth = new int[depth];
+		BSTNode[] nodes = new BSTNode[depth + 1];
+		int[] depths = new int[depth + 1];
+		long sum = 0;
+		int top = 0;
+
+		if (root != null) {
+			nodes[top] = root;
+			depths[top++] = 1;
 		}
+		//Each node is popped once, and pushes its children one level deeper.
+		while (top > 0) {
+			BSTNode x = nodes[--top];
+			int d = depths[top];
 
-		avrg = avrg / size();
-		return avrg;
-    }
+			nodesPerDepth[d - 1]++;
+			sum += d;
+			if (x.right != null) {
+				nodes[top] = x.right;
+				depths[top++] = d + 1;
+			}
+			if (x.left != null) {
+				nodes[top] = x.left;
+				depths[top++] = d + 1;
+			}
+		}
+
+		stats = new Statistics(version, depth, nodesPerDepth, 
+							   (size == 0) ? 0 : (double) sum / size);
+		statistics = stats;
+		return stats;
+	}
 
 	/********************************************************************
 	 *Gets the data with lowest value in the tree, 
@@ -307,85 +673,175 @@ class BST {
 		return root.getMax();
     }
 	
-	/******************************************
-	 *Gets the number of unique hash values that has previously been generated.
-	 *@return the number of nodes in the tree.
-	 ******************************************/
-    public int numberOfHashValues() {
-		int NOHV = 0;
-
-		for (int i = 0; i < hashValues.length; i++) {
-			if(hashValues[i]) NOHV++;
-		}
+	/*************************************************************************
+	 *Gets the number of changes made to the tree by add(), addAll() and 
+	 *remove().
+	 *@return the version of the tree.
+	 *************************************************************************/
+    public long version() {
+		return version;
+    }
 
-		return NOHV;
+	/*************************************************************************
+	 *Gets the filter used by mightContain().
+	 *@return the filter.
+	 *************************************************************************/
+    CountingBloomFilter filter() {
+		return filter;
     }
 	
-	/**************************************************************************
-	 *Calculates the fill rate of the hash table in intervals of specified size.
-	 *@param intervalSize the size of the intervals
-	 *@return the data with highest value in the tree
-	 ***************************************************************************/
-    public int[] hashValuesFillRate(int intervalSize) {
-		int[] HVFR = new int[hashValues.length / intervalSize];
-		int cur = 0;
-
-		for(int i = 0; i < HVFR.length; i++) {
-			for(int j = 0; j < intervalSize; j++) {
-				if(hashValues[cur++]) HVFR[i]++;
-			}
-		}
-
-		int[] fillRate = new int[intervalSize + 1];
- 
- 
-		for (int k = 0; k < HVFR.length; k++) {
-			fillRate[HVFR[k]]++;
-		}
-
-		return fillRate;
+	/*************************************************************************
+	 *Calculates the false positive rate of the filter, from how many of its 
+	 *bits are set.
+	 *@return the false positive rate of the filter.
+	 *************************************************************************/
+    public double falsePositiveRate() {
+		return filter.falsePositiveRate();
     }
 	
 	/******************************************************
-	 *The iterator class for this class
-	 *Uses the ConcurrentLinkedQueue class and its iterator
+	 *The iterator class for this class.
+	 *Walks the tree in order with an explicit stack of the nodes whose 
+	 *left subtrees are being visited, so it never holds more than the depth 
+	 *of the tree. It can start at the first node not less than a word and 
+	 *stop before a word, which finds the first node in logarithmic time.
 	 ******************************************************/
 	class BSTIter implements Iterator<BSTNode> {
-		ConcurrentLinkedQueue<BSTNode> list;
-		Iterator<BSTNode> iter;
+		private final String to; //Where to stop, or null for the end
+		private BSTNode[] stack;
+		private int top;
 		BSTNode current;
 
 		BSTIter() {
-			ConcurrentLinkedQueue<BSTNode> list = 
-				new ConcurrentLinkedQueue<BSTNode>();
-			if(root != null) collect(root, list);
-			iter = list.iterator();
+			this(null, null);
+		}
+
+		/**************************************************
+		 *@param from the first word, or null to start at the beginning.
+		 *@param to the word to stop before, or null to go to the end.
+		 **************************************************/
+		BSTIter(String from, String to) {
+			this.to = to;
+			seek(from, true);
+		}
+
+		/**************************************************
+		 *Fills the stack with the path to the first node that comes after 
+		 *a word.
+		 *@param from the word, or null to start at the beginning.
+		 *@param inclusive true if a node with the word itself is included.
+		 **************************************************/
+		private void seek(String from, boolean inclusive) {
+			stack = new BSTNode[(root == null) ? 0 : root.height];
+			top = 0;
+
+			BSTNode x = root;
+
+			while (x != null) {
+				int cmp = (from == null) ? 1 : x.word.compareTo(from);
+
+				if (cmp > 0 || (cmp == 0 && inclusive)) {
+					stack[top++] = x;
+					x = x.left;
+				} else x = x.right;
+			}
 		}
 
 		public BSTNode next() {
-			current = iter.next();
+			if (!hasNext()) throw new NoSuchElementException();
+
+			current = stack[--top];
+			for (BSTNode x = current.right; x != null; x = x.left) {
+				stack[top++] = x;
+			}
+
 			return current;
 		}
 	
 		public boolean hasNext() {
-			return iter.hasNext();
+			return top > 0 && (to == null || stack[top - 1].word.compareTo(to) < 0);
 		}
 
+		/**************************************************
+		 *Removes the last node returned from the tree. Removing rebalances 
+		 *the tree, so the walk continues from a new path to the next node.
+		 **************************************************/
 		public void remove() {
-			iter.remove();
-			BST.this.remove(current.word);
-		}
-	
-		protected void collect(BSTNode x, ConcurrentLinkedQueue<BSTNode> list) {
-			if(x.left != null) collect(x.left,list);
+			if (current == null) throw new IllegalStateException();
 
-			list.add(x);
+			String word = current.word;
 
-			if(x.right != null) collect(x.right, list);
+			current = null;
+			BST.this.remove(word);
+			seek(word, false);
 		}
 	}
 	
 	public Iterator<BSTNode> iterator() {
 		return new BSTIter();
 	}
-}
\ No newline at end of file
+
+	/******************************************
+	 *Gets an iterator over the data in the tree in sorted order.
+	 *@return an iterator over the data in the tree.
+	 ******************************************/
+	public Iterator<String> words() {
+		return words(new BSTIter());
+	}
+
+	/******************************************
+	 *Gets an iterator over the data in a range, in sorted order.
+	 *@param from the lowest data, inclusive, or null for no lower bound.
+	 *@param to the highest data, exclusive, or null for no upper bound.
+	 *@return an iterator over the data in the range.
+	 ******************************************/
+	public Iterator<String> range(String from, String to) {
+		return words(new BSTIter(from, to));
+	}
+
+	/******************************************
+	 *Gets an iterator over the data that starts with a prefix, in sorted 
+	 *order.
+	 *@param prefix the prefix.
+	 *@return an iterator over the data with the prefix.
+	 ******************************************/
+	public Iterator<String> prefix(String prefix) {
+		return range(prefix, prefixEnd(prefix));
+	}
+
+	/******************************************
+	 *Gets the lowest string that comes after every string with a prefix.
+	 *@param prefix the prefix.
+	 *@return the string, or null if there is none.
+	 ******************************************/
+	static String prefixEnd(String prefix) {
+		int n = prefix.length();
+
+		while (n > 0 && prefix.charAt(n - 1) == Character.MAX_VALUE) n--;
+		if (n == 0) return null;
+
+		char[] end = prefix.substring(0, n).toCharArray();
+
+		end[n - 1]++;
+		return new String(end);
+	}
+
+	/******************************************
+	 *Gets the data of the nodes returned by an iterator.
+	 ******************************************/
+	private static Iterator<String> words(final Iterator<BSTNode> iter) {
+		return new Iterator<String>() {
+			public boolean hasNext() {
+				return iter.hasNext();
+			}
+
+			public String next() {
+				return iter.next().word;
+			}
+
+			public void remove() {
+				iter.remove();
+			}
+		};
+	}
+}
@@ -0,0 +1,171 @@
+/*****************************************************************************
+ *The first way the spellchecker found suggestions, kept only as the 
+ *baseline that Benchmark measures the CandidateGenerator against. Nothing 
+ *else uses it.
+ *
+ *Every string one edit away from a word is built as a String of its own, 
+ *one array for each kind of edit, and the arrays are then looked up in 
+ *the dictionary and the words found are printed.
+ *****************************************************************************/
+class Baseline {
+	private final SpellChecker checker;
+	private final char[] alphabet;
+
+	/*************************************************************************
+	 *Creates a baseline.
+	 *@param checker the spellchecker whose dictionary and alphabet are used.
+	 *************************************************************************/
+	Baseline(SpellChecker checker) {
+		this.checker = checker;
+		this.alphabet = checker.alphabet;
+	}
+
+	/*****************************************************************
+	 *Generates strings similar to the string parameter, 
+	 *where two characters next to each other have been swapped.
+	 *The amount of the strings generated is equal to the length of the 
+	 *string minus one.
+	 *@param s the string that will be used to generate similar strings.
+	 *@return a string array containing the generated strings
+	 ******************************************************************/
+    String[] similar1(String s) {
+		char[] word = s.toCharArray();
+		char[] temp;
+		String[] words = new String[word.length - 1];
+	
+		for (int i = 0; i < words.length; i++) {
+			temp = word.clone();
+			words[i] = swap(i, i + 1, temp);
+		}
+
+		return words;
+    }
+	
+	/********************************************************
+	 *Swaps two characters next to each other in a string.
+	 *@param a the first character's position in the string.
+	 *@param a the second character's position in the string.
+	 *@param word the string in question.
+	 *@return returns the string with the swapped characters.
+	 ********************************************************/
+    String swap(int a, int b, char[] word) {
+		char temp = word[a];
+		word[a] = word[b];
+		word[b] = temp;
+	
+		return new String(word);
+    }
+
+	/*****************************************************************
+	 *Generates strings similar to the string parameter, 
+	 *where one character has been replaced with another from the alphabet.
+	 *The amount of the strings generated is equal to the sum of the product of 
+	 *the length of the string times the length of the alphabet being subtracted
+	 *by the length of the string.
+	 *@param s the string that will be used to generate similar strings.
+	 *@return a string array containing the generated strings
+	 ******************************************************************/
+    String[] similar2(String s) {
+		String[] words = new String[(s.length() * alphabet.length) - s.length()];
+		char[] temp;
+		String temp2;
+		int k = 0;
+
+		for (int i = 0; i < s.length(); i++) {
+			temp = s.toCharArray();
+		
+			for (int j = 0; j < alphabet.length; j++) {
+				temp[i] = alphabet[j];
+				temp2 = new String(temp);
+		
+				if (!(temp2.equals(s))) words[k++] = (new String(temp2)); 
+			}
+		}
+
+		return words;
+    }
+
+	/*****************************************************************
+	 *Generates strings similar to the string parameter, 
+	 *where one character is missing.
+	 *The amount of the strings generated is equal to the length of the string.
+	 *@param s the string that will be used to generate similar strings.
+	 *@return a string array containing the generated strings
+	 ******************************************************************/
+    String[] similar3(String s) {
+		String[] words = new String[s.length()];
+		char[] temp1;
+		char[] temp2 = s.toCharArray();
+	
+		for (int i = 0; i < s.length(); i++) {
+			temp1 = new char[s.length() - 1];
+	    
+			for (int j = 0; j < temp1.length; j++) {
+				if (i != j) {
+					temp1[j] = temp2[j];
+				}
+			}
+	    
+			words[i] = new String(temp1);;
+		}
+	
+		return words;
+    }
+
+	/*****************************************************************
+	 *Generates strings similar to the string parameter, 
+	 *where one character from the alphabet is added at the start, at the end, 
+	 *or somewhere in between.
+	 *The amount of the strings generated is equal to the product of the length 
+	 *of the string times the length of the alphabet.
+	 *@param s the string that will be used to generate similar strings.
+	 *@return a string array containing the generated strings
+	 ******************************************************************/
+    String[] similar4(String s) {
+		String[] words = new String[s.length() * alphabet.length];
+		char[] temp1;
+		char[] temp2 = s.toCharArray();
+		int m = 0;
+
+		for (int i = 0; i < s.length(); i++) {
+			temp1 = new char[s.length() + 1];
+
+			for (int j = 0; j != i; j++) {
+				temp1[j] = temp2[j];
+			}
+	
+			for(int k = 0; k < alphabet.length; k++) {
+				temp1[i] = alphabet[k];
+
+				for(int l = i + 1; l < s.length(); l++) {
+					temp1[l] = temp2[l - 1];
+				} 
+
+				words[m++] = new String(temp1);
+			}
+		}
+
+		return words;
+    }
+
+	/***************************************************************************
+	 *Checks if generated strings pass the dictionary's filter, and
+	 *then if they do, checks if the strings are in the dictionary itself.
+	 *Also keeps track of the number of strings that were in the dictionary when
+	 *they passed the filter, 
+	 *the number of strings that were not in the dictionary itself, but 
+	 *passed the filter, 
+	 *and the number of strings that were rejected by the filter.
+	 *The strings that pass are looked up together, in sorted order.
+	 *@param words the generated strings to be checked
+	 *@param stats the array holding the numbers previously described.
+	 ***************************************************************************/
+    void checkWords(String[] words, int[] stats) {
+		boolean[] found = new boolean[words.length];
+
+		checker.areInDictionary(words, words.length, found, stats);
+		for (int i = 0; i < words.length; i++) {
+			if (found[i]) System.out.println("- " + words[i]);
+		}
+    }
+}
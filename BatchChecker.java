@@ -0,0 +1,299 @@
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/*****************************************************************************
+ *Spellchecks whole documents, or every document in a directory.
+ *
+ *A file is streamed in chunks of lines. Each chunk is tokenized and checked 
+ *by a pool of worker threads, and every distinct word is only checked once 
+ *per chunk. Only a few chunks per thread are in flight at a time, so memory 
+ *use does not grow with the size of the file, and the results are written 
+ *in the order of the file.
+ *
+ *For each file a tab-separated report named after it with the extension 
+ *".spell.tsv" is written, with one line for every misspelled word: its 
+ *line, its column, the word and its suggestions separated by commas. 
+ *The suggestions end with "..." if the budget ran out before they were 
+ *all found. Lines and columns count from 1.
+ *
+ *Unless an encoding is given, each file is read as UTF-8 if it starts with 
+ *a UTF-8 byte order mark or all its bytes are valid UTF-8, and otherwise 
+ *as ISO-8859-1, the same way as WordListLoader reads word lists. The 
+ *encoding of the platform is never used, since under the POSIX locale it 
+ *is ASCII, and every non-ASCII letter would split a word.
+ *****************************************************************************/
+class BatchChecker {
+	static final String REPORT_EXTENSION = ".spell.tsv";
+	private static final int CHUNK_CHARS = 1 << 16;
+
+	private final SpellChecker checker;
+	private final Charset charset; //The encoding of the files, or null
+	private final int threads;
+	private final ExecutorService pool;
+
+	/*************************************************************************
+	 *A number of consecutive lines of a file.
+	 *************************************************************************/
+	private static class Chunk {
+		final int firstLine;
+		final List<String> lines = new ArrayList<String>();
+
+		Chunk(int firstLine) {
+			this.firstLine = firstLine;
+		}
+	}
+
+	/*************************************************************************
+	 *The report lines for a chunk, and what was counted while checking it.
+	 *************************************************************************/
+	private static class Result {
+		final StringBuilder report = new StringBuilder();
+		int words;
+		int misspelled;
+	}
+
+	/*************************************************************************
+	 *Creates a batch checker.
+	 *@param checker the spellchecker, whose dictionary must not be changed 
+	 *while files are checked.
+	 *@param charset the encoding of the files to be checked, or null to 
+	 *detect it for each file.
+	 *@param threads the number of worker threads. They are daemon threads, 
+	 *so a batch that fails cannot keep the program alive.
+	 *************************************************************************/
+	BatchChecker(SpellChecker checker, Charset charset, int threads) {
+		this.checker = checker;
+		this.charset = charset;
+		this.threads = threads;
+		this.pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "batch-checker");
+
+					t.setDaemon(true);
+					return t;
+				}
+			});
+	}
+
+	/*************************************************************************
+	 *Checks a file, or every file below a directory in sorted order. 
+	 *Reports written by earlier runs are skipped.
+	 *@param f the file or directory.
+	 *@throws IOException if a file cannot be read or a report written.
+	 *************************************************************************/
+	void check(File f) throws IOException {
+		if (f.isDirectory()) {
+			File[] files = f.listFiles();
+
+			if (files == null) return;
+			Arrays.sort(files);
+			for (int i = 0; i < files.length; i++) check(files[i]);
+		} else if (!f.getName().endsWith(REPORT_EXTENSION)) {
+			checkFile(f);
+		}
+	}
+
+	/*************************************************************************
+	 *Checks a single file and writes its report.
+	 *************************************************************************/
+	private void checkFile(File f) throws IOException {
+		long start = System.currentTimeMillis();
+		File out = new File(f.getPath() + REPORT_EXTENSION);
+		Charset encoding = (charset != null) ? charset : 
+			WordListLoader.detect(f);
+		BufferedReader in = new BufferedReader(
+			new InputStreamReader(new FileInputStream(f), encoding), 1 << 16);
+		Writer report = new BufferedWriter(new OutputStreamWriter(
+			new FileOutputStream(out), StandardCharsets.UTF_8), 1 << 16);
+		ArrayDeque<Future<Result>> pending = new ArrayDeque<Future<Result>>();
+		int words = 0, misspelled = 0;
+
+		try {
+			report.write("line\tcolumn\tword\tsuggestions\n");
+
+			String line;
+			int lineNumber = 0;
+			Chunk chunk = new Chunk(1);
+			int chars = 0;
+
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				//The byte order mark is not a column of the text.
+				if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+					line = line.substring(1);
+				}
+				chunk.lines.add(line);
+				chars += line.length();
+
+				if (chars >= CHUNK_CHARS) {
+					pending.add(submit(chunk));
+					chunk = new Chunk(lineNumber + 1);
+					chars = 0;
+
+					//Waits for the oldest chunk when enough are in flight.
+					if (pending.size() >= 2 * threads) {
+						Result r = get(pending.poll());
+
+						report.append(r.report);
+						words += r.words;
+						misspelled += r.misspelled;
+					}
+				}
+			}
+			if (!chunk.lines.isEmpty()) pending.add(submit(chunk));
+
+			while (!pending.isEmpty()) {
+				Result r = get(pending.poll());
+
+				report.append(r.report);
+				words += r.words;
+				misspelled += r.misspelled;
+			}
+		} finally {
+			in.close();
+			report.close();
+		}
+
+		long time = Math.max(1, System.currentTimeMillis() - start);
+
+		System.out.println(f + ": " + words + " words, " + misspelled + 
+						   " misspelled, " + (f.length() / 1024) + " KiB in " +
+						   (time / 1000F) + " seconds (" + 
+						   (f.length() * 1000 / time / 1024) + " KiB/s)");
+	}
+
+	/*************************************************************************
+	 *Hands a chunk to the worker threads.
+	 *************************************************************************/
+	private Future<Result> submit(final Chunk chunk) {
+		return pool.submit(new Callable<Result>() {
+				public Result call() {
+					return check(chunk);
+				}
+			});
+	}
+
+	/*************************************************************************
+	 *Waits for the result of a chunk.
+	 *************************************************************************/
+	private static Result get(Future<Result> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/*************************************************************************
+	 *Tokenizes and checks a chunk. A token is a run of letters. The 
+	 *distinct tokens of the chunk are checked together in one batch, and 
+	 *those that are not in the dictionary are tried again in lower case, 
+	 *so words at the start of a sentence are accepted.
+	 *@param chunk the chunk to be checked.
+	 *@return the report lines for the chunk.
+	 *************************************************************************/
+	private Result check(Chunk chunk) {
+		Result r = new Result();
+		//The suggestions for each distinct word, or null if it is correct.
+		HashMap<String, String> seen = new HashMap<String, String>();
+		List<int[]> tokens = new ArrayList<int[]>(); //Line, start and end
+
+		for (int l = 0; l < chunk.lines.size(); l++) {
+			String line = chunk.lines.get(l);
+			int i = 0;
+
+			while (i < line.length()) {
+				if (!Character.isLetter(line.charAt(i))) {
+					i++;
+					continue;
+				}
+
+				int from = i;
+
+				while (i < line.length() && Character.isLetter(line.charAt(i))) {
+					i++;
+				}
+				tokens.add(new int[] {l, from, i});
+				seen.put(line.substring(from, i), null);
+			}
+		}
+
+		String[] words = seen.keySet().toArray(new String[seen.size()]);
+		boolean[] found = new boolean[words.length];
+		int n = 0;
+
+		checker.areSpelledCorrectly(words, words.length, found, null);
+		for (int i = 0; i < words.length; i++) {
+			if (!found[i]) words[n++] = words[i];
+		}
+
+		String[] lower = new String[n];
+
+		for (int i = 0; i < n; i++) lower[i] = words[i].toLowerCase();
+		checker.areSpelledCorrectly(lower, n, found, null);
+		for (int i = 0; i < n; i++) {
+			if (!found[i]) seen.put(words[i], suggestions(lower[i]));
+		}
+
+		for (int t = 0; t < tokens.size(); t++) {
+			int[] token = tokens.get(t);
+			String word = chunk.lines.get(token[0]).substring(token[1], token[2]);
+			String suggestions = seen.get(word);
+
+			r.words++;
+			if (suggestions != null) {
+				r.misspelled++;
+				r.report.append(chunk.firstLine + token[0]).append('\t')
+					.append(token[1] + 1).append('\t')
+					.append(word).append('\t')
+					.append(suggestions).append('\n');
+			}
+		}
+
+		return r;
+	}
+
+	/*************************************************************************
+	 *Finds the suggestions for a misspelled word.
+	 *@return the suggestions separated by commas, followed by "..." if 
+	 *they were cut short by the budget.
+	 *************************************************************************/
+	private String suggestions(String word) {
+		SpellChecker.Result result = checker.suggest(word);
+		List<String> hits = result.suggestions();
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < hits.size(); i++) {
+			if (i > 0) sb.append(',');
+			sb.append(hits.get(i));
+		}
+		if (result.isTruncated()) {
+			if (!hits.isEmpty()) sb.append(',');
+			sb.append("...");
+		}
+
+		return sb.toString();
+	}
+
+	/******************************************
+	 *Stops the worker threads.
+	 ******************************************/
+	void shutdown() {
+		pool.shutdown();
+	}
+}
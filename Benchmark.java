@@ -0,0 +1,410 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/*****************************************************************************
+ *Micro benchmarks for building the dictionary, looking up words and 
+ *generating suggestions, run against a generated Norwegian-like word list.
+ *
+ *Each benchmark is warmed up and then timed over several iterations. The 
+ *time per operation and the bytes allocated per operation are reported, 
+ *the latter from the allocation counter of the running thread, so changes 
+ *in both throughput and garbage can be caught.
+ *
+ *This is a quick check that needs nothing but the JDK. The same 
+ *benchmarks, with forked JVMs and the GC profiler, are in the JMH module 
+ *in jmh/.
+ *
+ *USAGE: java Benchmark [-words n] [-order sorted|shuffled|reversed] 
+ *[-iterations n] [-millis n]
+ *****************************************************************************/
+class Benchmark {
+	private static final String[] STEMS = {
+		"bil", "hus", "dag", "natt", "katt", "hund", "skole", "barn", "mor", 
+		"far", "familie", "forsikring", "sol", "vei", "by", "land", 
+		"b\u00e5t", "gr\u00f8nn", "s\u00f8ster", "bror", "\u00e6re", "skog", 
+		"fjell", "elv", "str\u00f8m", "brev", "bok", "arbeid", "l\u00e6rer", 
+		"venn"
+	};
+	private static final String[] SYLLABLES = {
+		"ba", "be", "bi", "bo", "da", "de", "fa", "fo", "ga", "gi", "ka", 
+		"ke", "la", "le", "ma", "mi", "na", "ne", "ra", "re", "sa", "se", 
+		"ska", "sta", "stre", "ta", "te", "va", "ve", "kj\u00e6", "sk\u00f8", 
+		"gr\u00e5", "bl\u00e5", "h\u00f8", "tr\u00e6"
+	};
+	private static final String[] ENDINGS = {
+		"", "en", "er", "ene", "et", "a", "e", "s", "ens", "ers", "enes"
+	};
+
+	private static PrintStream out = System.out;
+	private static Object sink; //Keeps the results of benchmarks alive
+
+	private final int iterations;
+	private final long millis;
+
+	/*************************************************************************
+	 *A piece of work to be measured. The argument counts the operations, so 
+	 *the work can pick a different input every time.
+	 *************************************************************************/
+	interface Task {
+		Object run(int i);
+	}
+
+	Benchmark(int iterations, long millis) {
+		this.iterations = iterations;
+		this.millis = millis;
+	}
+
+	/*************************************************************************
+	 *Generates a word list of Norwegian-like words: stems and compounds of 
+	 *stems and syllables, each with a number of inflected forms.
+	 *@param n the number of words.
+	 *@param order "sorted", "shuffled" or "reversed".
+	 *@param seed the seed of the random generator.
+	 *@return the words.
+	 *************************************************************************/
+	static String[] generateWords(int n, String order, long seed) {
+		Random r = new Random(seed);
+		HashSet<String> set = new HashSet<String>();
+
+		while (set.size() < n) {
+			StringBuilder sb = new StringBuilder();
+			int parts = 1 + r.nextInt(3);
+
+			for (int i = 0; i < parts; i++) {
+				if (r.nextInt(3) == 0) sb.append(STEMS[r.nextInt(STEMS.length)]);
+				else sb.append(SYLLABLES[r.nextInt(SYLLABLES.length)]);
+			}
+
+			String stem = sb.toString();
+			int forms = 1 + r.nextInt(ENDINGS.length);
+
+			for (int i = 0; i < forms && set.size() < n; i++) {
+				set.add(stem + ENDINGS[i]);
+			}
+		}
+
+		String[] words = set.toArray(new String[n]);
+
+		Arrays.sort(words);
+		if (order.equals("shuffled")) {
+			for (int i = words.length - 1; i > 0; i--) {
+				int j = r.nextInt(i + 1);
+				String t = words[i];
+
+				words[i] = words[j];
+				words[j] = t;
+			}
+		} else if (order.equals("reversed")) {
+			for (int i = 0, j = words.length - 1; i < j; i++, j--) {
+				String t = words[i];
+
+				words[i] = words[j];
+				words[j] = t;
+			}
+		}
+
+		return words;
+	}
+
+	/*************************************************************************
+	 *Makes one random edit to each of a number of words, so that most of 
+	 *them are misspelled.
+	 *************************************************************************/
+	static String[] misspell(String[] words, int n, char[] alphabet, long seed) {
+		Random r = new Random(seed);
+		String[] typos = new String[n];
+
+		for (int i = 0; i < n; i++) {
+			StringBuilder sb = new StringBuilder(words[r.nextInt(words.length)]);
+			int p = r.nextInt(sb.length());
+
+			switch (r.nextInt(4)) {
+			case 0:
+				if (p + 1 < sb.length()) {
+					char c = sb.charAt(p);
+
+					sb.setCharAt(p, sb.charAt(p + 1));
+					sb.setCharAt(p + 1, c);
+				}
+				break;
+			case 1:
+				sb.setCharAt(p, alphabet[r.nextInt(alphabet.length)]);
+				break;
+			case 2:
+				if (sb.length() > 1) sb.deleteCharAt(p);
+				break;
+			default:
+				sb.insert(p, alphabet[r.nextInt(alphabet.length)]);
+			}
+			typos[i] = sb.toString();
+		}
+
+		return typos;
+	}
+
+	/*************************************************************************
+	 *Runs a task repeatedly for the configured time, first to warm it up and 
+	 *then once per iteration, and prints the average time and allocation 
+	 *per operation.
+	 *@param name the name of the benchmark.
+	 *@param task the task to be measured.
+	 *************************************************************************/
+	void measure(String name, Task task) {
+		com.sun.management.ThreadMXBean threads = 
+			(com.sun.management.ThreadMXBean) 
+			ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		int op = 0;
+
+		run(task, op, millis);
+
+		double[] nanos = new double[iterations];
+		long ops = 0, bytes = 0;
+
+		for (int i = 0; i < iterations; i++) {
+			long allocated = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			int n = run(task, op, millis);
+
+			nanos[i] = (double) (System.nanoTime() - start) / n;
+			bytes += threads.getThreadAllocatedBytes(thread) - allocated;
+			ops += n;
+			op += n;
+		}
+
+		double mean = 0, deviation = 0;
+
+		for (int i = 0; i < iterations; i++) mean += nanos[i] / iterations;
+		for (int i = 0; i < iterations; i++) {
+			deviation += (nanos[i] - mean) * (nanos[i] - mean) / iterations;
+		}
+
+		out.println(String.format("%-36s %14.1f ns/op  +-%5.1f%%  %12.1f B/op",
+								  name, mean, 
+								  100 * Math.sqrt(deviation) / mean, 
+								  (double) bytes / ops));
+	}
+
+	/*************************************************************************
+	 *Runs a task until the specified time has passed, checking the clock 
+	 *only every so often.
+	 *@return the number of operations run.
+	 *************************************************************************/
+	private static int run(Task task, int op, long millis) {
+		long end = System.nanoTime() + millis * 1000000;
+		int n = 0;
+
+		do {
+			for (int i = 0; i < 16; i++) sink = task.run(op + n++);
+		} while (System.nanoTime() < end);
+
+		return n;
+	}
+
+	/******************************************
+	 *The main method of the Benchmark class.
+	 ******************************************/
+	public static void main(String[] args) throws IOException {
+		int n = 100000;
+		String order = "sorted";
+		int iterations = 5;
+		long millis = 1000;
+
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-words")) n = Integer.parseInt(args[i + 1]);
+			else if (args[i].equals("-order")) order = args[i + 1];
+			else if (args[i].equals("-iterations")) {
+				iterations = Integer.parseInt(args[i + 1]);
+			} else if (args[i].equals("-millis")) {
+				millis = Long.parseLong(args[i + 1]);
+			}
+		}
+
+		final String[] words = generateWords(n, order, 42);
+		File file = File.createTempFile("ordbok", ".txt");
+
+		file.deleteOnExit();
+
+		Writer w = new BufferedWriter(new OutputStreamWriter(
+			new FileOutputStream(file), "ISO-8859-1"));
+
+		for (int i = 0; i < words.length; i++) w.write(words[i] + "\n");
+		w.close();
+
+		//Everything the spellchecker prints is thrown away.
+		System.setOut(new PrintStream(new OutputStream() {
+				public void write(int b) {
+				}
+
+				public void write(byte[] b, int off, int len) {
+				}
+			}));
+
+		final String path = file.getPath();
+		final SpellChecker checker = new SpellChecker(path);
+		final BST tree = new BST();
+
+		tree.addAll(words);
+
+		final HashDictionary table = new HashDictionary(words);
+
+		final Baseline baseline = new Baseline(checker);
+		final char[] alphabet = checker.alphabet;
+		final String[] typos = misspell(words, 4096, alphabet, 7);
+		final int[] stats = new int[3];
+		final CandidateGenerator generator = 
+			new CandidateGenerator(tree, alphabet);
+		final List<String> found = new ArrayList<String>();
+		Benchmark b = new Benchmark(iterations, millis);
+
+		checker.setCacheSize(0);
+		out.println("Words: " + n + " (" + order + "), iterations: " + 
+					iterations + " x " + millis + " ms");
+
+		b.measure("SpellChecker(String)", new Task() {
+				public Object run(int i) {
+					try {
+						return new SpellChecker(path);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		final File list = file;
+
+		b.measure("Scanner (word list)", new Task() {
+				public Object run(int i) {
+					try {
+						Scanner s = new Scanner(list, "ISO-8859-1");
+						List<String> read = new ArrayList<String>();
+
+						while (s.hasNext()) read.add(s.next());
+						s.close();
+						return read;
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		b.measure("WordListLoader.load", new Task() {
+				public Object run(int i) {
+					try {
+						return new WordListLoader(null).load(list);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			});
+		b.measure("BST.addAll", new Task() {
+				public Object run(int i) {
+					BST t = new BST();
+
+					t.addAll(words);
+					return t;
+				}
+			});
+		b.measure("BST.add", new Task() {
+				public Object run(int i) {
+					BST t = new BST();
+
+					for (int j = 0; j < words.length; j++) t.add(words[j]);
+					return t;
+				}
+			});
+		b.measure("BST.contains (hit)", new Task() {
+				public Object run(int i) {
+					return tree.contains(words[(int) ((i * 7919L) % words.length)]);
+				}
+			});
+		b.measure("BST.contains (miss)", new Task() {
+				public Object run(int i) {
+					return tree.contains(typos[i & 4095]);
+				}
+			});
+		b.measure("HashDictionary.contains (hit)", new Task() {
+				public Object run(int i) {
+					return table.contains(words[(int) ((i * 7919L) % words.length)]);
+				}
+			});
+		b.measure("HashDictionary.contains (miss)", new Task() {
+				public Object run(int i) {
+					return table.contains(typos[i & 4095]);
+				}
+			});
+		b.measure("BST.mightContain", new Task() {
+				public Object run(int i) {
+					return tree.mightContain(typos[i & 4095]);
+				}
+			});
+		b.measure("BloomFilter.hash", new Task() {
+				public Object run(int i) {
+					return BloomFilter.hash(typos[i & 4095]);
+				}
+			});
+		b.measure("similar1", new Task() {
+				public Object run(int i) {
+					return baseline.similar1(typos[i & 4095]);
+				}
+			});
+		b.measure("similar2", new Task() {
+				public Object run(int i) {
+					return baseline.similar2(typos[i & 4095]);
+				}
+			});
+		b.measure("similar3", new Task() {
+				public Object run(int i) {
+					return baseline.similar3(typos[i & 4095]);
+				}
+			});
+		b.measure("similar4", new Task() {
+				public Object run(int i) {
+					return baseline.similar4(typos[i & 4095]);
+				}
+			});
+		b.measure("checkWords(similar2)", new Task() {
+				final String[][] candidates = new String[4096][];
+
+				public Object run(int i) {
+					int j = i & 4095;
+
+					if (candidates[j] == null) {
+						candidates[j] = baseline.similar2(typos[j]);
+					}
+					baseline.checkWords(candidates[j], stats);
+					return stats;
+				}
+			});
+		b.measure("CandidateGenerator.generate", new Task() {
+				public Object run(int i) {
+					found.clear();
+					generator.generate(typos[i & 4095], found, stats);
+					return found;
+				}
+			});
+		b.measure("generateWords", new Task() {
+				public Object run(int i) {
+					checker.generateWords(typos[i & 4095]);
+					return checker;
+				}
+			});
+		b.measure("check", new Task() {
+				public Object run(int i) {
+					return checker.check(typos[i & 4095]);
+				}
+			});
+		for (SpellChecker.Strategy strategy : SpellChecker.Strategy.values()) {
+			checker.setStrategy(strategy, 1);
+			b.measure("suggest (" + strategy + ")", new Task() {
+					public Object run(int i) {
+						return checker.suggest(typos[i & 4095]);
+					}
+				});
+		}
+	}
+}
@@ -0,0 +1,201 @@
+import java.nio.LongBuffer;
+
+/*****************************************************************************
+ *A Bloom filter used as a prefilter in front of the dictionary.
+ *The bits are packed into longs, and the k bit positions of a word are 
+ *derived from one 64-bit hash by double hashing. The filter is sized from 
+ *the number of words it should hold and the wanted false positive rate.
+ *The bits are kept in a LongBuffer, so a filter can also be read straight 
+ *from a memory-mapped snapshot.
+ *****************************************************************************/
+class BloomFilter {
+	static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+	static final long PRIME = 0x100000001B3L;
+	static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+	private final LongBuffer bits;
+	private final long numBits;
+	private final int numHashes;
+	private final int capacity;
+
+	/*************************************************************************
+	 *Creates an empty filter sized for the specified number of words.
+	 *@param expected the number of words the filter should hold.
+	 *@param falsePositiveRate the wanted false positive rate at that size.
+	 *************************************************************************/
+	BloomFilter(int expected, double falsePositiveRate) {
+		int n = Math.max(expected, 1);
+		double ln2 = Math.log(2);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / 
+								  (ln2 * ln2));
+
+		m = Math.max(64, (m + 63) & ~63L);
+		bits = LongBuffer.wrap(new long[(int) (m >>> 6)]);
+		numBits = m;
+		numHashes = Math.max(1, (int) Math.round((double) m / n * ln2));
+		capacity = n;
+	}
+
+	/*************************************************************************
+	 *Creates a filter from previously saved bits.
+	 *@param bits the bits of the filter.
+	 *@param numHashes the number of hash functions.
+	 *************************************************************************/
+	BloomFilter(LongBuffer bits, int numHashes) {
+		this.bits = bits;
+		this.numBits = 64L * bits.capacity();
+		this.numHashes = numHashes;
+		this.capacity = 0;
+	}
+
+	/*************************************************************************
+	 *Generates a 64-bit hash value from a string. The hash is a polynomial 
+	 *in the characters, so it can be updated when a single character 
+	 *changes without rehashing the rest of the string.
+	 *@param s the string that will be used to generate a hash value.
+	 *@return the generated hash value.
+	 *************************************************************************/
+	static long hash(CharSequence s) {
+		long h = 1;
+
+		for (int i = 0; i < s.length(); i++) {
+			h = PRIME * h + s.charAt(i);
+		}
+
+		return h;
+	}
+
+	/*************************************************************************
+	 *Generates a 64-bit hash value from the first characters of an array, 
+	 *equal to the hash value of a string with the same characters.
+	 *@param c the characters.
+	 *@param length the number of characters.
+	 *@return the generated hash value.
+	 *************************************************************************/
+	static long hash(char[] c, int length) {
+		long h = 1;
+
+		for (int i = 0; i < length; i++) {
+			h = PRIME * h + c[i];
+		}
+
+		return h;
+	}
+
+	/*************************************************************************
+	 *Scrambles a hash value, so that similar strings get unrelated bits.
+	 *This is the finalizer of MurmurHash3.
+	 *************************************************************************/
+	static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+
+		return h;
+	}
+
+	/************************************************
+	 *Adds a string to the filter.
+	 *@param s the string to be added
+	 *************************************************/
+	void add(CharSequence s) {
+		addHash(hash(s));
+	}
+
+	/************************************************
+	 *Adds a string to the filter by its hash value.
+	 *@param h the hash value of the string
+	 *************************************************/
+	void addHash(long h) {
+		long a = mix(h);
+		long b = mix(h ^ GOLDEN) | 1;
+
+		for (int i = 0; i < numHashes; i++) {
+			long bit = Long.remainderUnsigned(a + i * b, numBits);
+
+			int i6 = (int) (bit >>> 6);
+
+			bits.put(i6, bits.get(i6) | (1L << bit));
+		}
+	}
+
+	/*************************************************************************
+	 *Checks if a string might have been added to the filter.
+	 *@param s the string to be checked.
+	 *@return false if the string has definitely not been added.
+	 *************************************************************************/
+	boolean mightContain(CharSequence s) {
+		return mightContainHash(hash(s));
+	}
+
+	/*************************************************************************
+	 *Checks if a string might have been added to the filter, by its hash 
+	 *value.
+	 *@param h the hash value of the string.
+	 *@return false if the string has definitely not been added.
+	 *************************************************************************/
+	boolean mightContainHash(long h) {
+		long a = mix(h);
+		long b = mix(h ^ GOLDEN) | 1;
+
+		for (int i = 0; i < numHashes; i++) {
+			long bit = Long.remainderUnsigned(a + i * b, numBits);
+
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+		}
+
+		return true;
+	}
+
+	/******************************************
+	 *Removes every string from the filter.
+	 ******************************************/
+	void clear() {
+		for (int i = 0; i < bits.capacity(); i++) bits.put(i, 0);
+	}
+
+	/******************************************
+	 *Gets the number of set bits in the filter.
+	 *@return the number of set bits.
+	 ******************************************/
+	long bitCount() {
+		long n = 0;
+
+		for (int i = 0; i < bits.capacity(); i++) {
+			n += Long.bitCount(bits.get(i));
+		}
+
+		return n;
+	}
+
+	/*************************************************************************
+	 *Calculates the false positive rate of the filter from the share of 
+	 *bits that are set, which is what a lookup of a non-word will see.
+	 *@return the expected false positive rate.
+	 *************************************************************************/
+	double falsePositiveRate() {
+		return Math.pow((double) bitCount() / numBits, numHashes);
+	}
+
+	/******************************************
+	 *Gets the number of words the filter was sized for.
+	 *@return the capacity of the filter.
+	 ******************************************/
+	int capacity() {
+		return capacity;
+	}
+
+	long numBits() {
+		return numBits;
+	}
+
+	int numHashes() {
+		return numHashes;
+	}
+
+	LongBuffer bits() {
+		return bits;
+	}
+}
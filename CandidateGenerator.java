@@ -0,0 +1,322 @@
+import java.util.Arrays;
+import java.util.List;
+
+/*****************************************************************************
+ *Generates the strings one edit away from a misspelled word and looks them 
+ *up in a dictionary, without creating a string for every candidate.
+ *
+ *Each candidate is first described only by its hash value, which is 
+ *calculated from precomputed hashes of the unchanged prefix and suffix of 
+ *the word. Only candidates that pass the dictionary's filter are written 
+ *into a reusable buffer and looked up, and only the ones that are found 
+ *are turned into strings.
+ *
+ *The candidates are looked up one at a time as they are made, not sorted 
+ *and looked up together with Dictionary.containsAll(): most of them are 
+ *rejected by the filter on their hash alone, and sorting would mean 
+ *making a string of every one that passes.
+ *
+ *The kinds of edits are tried from the fewest candidates to the most: 
+ *transpositions, deletions, substitutions and insertions. A generator may 
+ *be given a budget of time and candidates, and stops with the hits found 
+ *so far when it runs out, so a long garbage word cannot hold a request up.
+ *
+ *A generator keeps state between calls, so each thread needs its own.
+ *****************************************************************************/
+class CandidateGenerator {
+	static final int TRANSPOSITION = 0;
+	static final int SUBSTITUTION = 1;
+	static final int DELETION = 2;
+	static final int INSERTION = 3;
+	private static final long P = BloomFilter.PRIME;
+
+	private final Dictionary dict;
+	private final char[] alphabet;
+	private char[] word = new char[0];   //The misspelled word
+	private char[] buffer = new char[0]; //The candidate being looked up
+	private long[] prefix = new long[0]; //Hash of the first i characters
+	private long[] suffix = new long[0]; //Hash of the characters from i on
+	private long[] power = new long[0];  //P to the power of i
+	private long hash;                   //Hash of the whole word
+	private int length;
+	private final int[] generated = new int[4]; //Candidates of each kind
+	private Scorer scorer;  //Set while ranked candidates are generated
+	private Scorer.TopK top;
+	private long deadline;  //System.nanoTime() to stop at, 0 for none
+	private int limit;      //The greatest number of candidates, 0 for none
+	private boolean truncated; //True if the budget ran out
+
+	/*************************************************************************
+	 *Creates a generator for a dictionary.
+	 *@param dict the dictionary the candidates are looked up in.
+	 *@param alphabet the characters used for substitutions and insertions.
+	 *************************************************************************/
+	CandidateGenerator(Dictionary dict, char[] alphabet) {
+		this.dict = dict;
+		this.alphabet = alphabet;
+	}
+
+	/*************************************************************************
+	 *Gets the dictionary the candidates are looked up in.
+	 *************************************************************************/
+	Dictionary dictionary() {
+		return dict;
+	}
+
+	/*************************************************************************
+	 *Prepares the generator for a new word, by copying it into the buffers 
+	 *and calculating its prefix and suffix hashes.
+	 *@param s the misspelled word.
+	 *************************************************************************/
+	void set(String s) {
+		length = s.length();
+		if (word.length < length + 1) {
+			word = new char[length + 1];
+			buffer = new char[length + 1];
+			prefix = new long[length + 2];
+			suffix = new long[length + 2];
+			power = new long[length + 2];
+		}
+		s.getChars(0, length, word, 0);
+		s.getChars(0, length, buffer, 0);
+
+		power[0] = 1;
+		for (int i = 1; i <= length + 1; i++) power[i] = power[i - 1] * P;
+
+		prefix[0] = 1;
+		for (int i = 0; i < length; i++) prefix[i + 1] = prefix[i] * P + word[i];
+
+		suffix[length] = 0;
+		for (int i = length - 1; i >= 0; i--) {
+			suffix[i] = suffix[i + 1] + word[i] * power[length - 1 - i];
+		}
+
+		hash = prefix[length];
+		Arrays.fill(generated, 0);
+		truncated = false;
+	}
+
+	/*************************************************************************
+	 *Sets the budget of the calls to generate() that follow. The budget is 
+	 *checked before each position of the word, so up to one position's 
+	 *candidates may go past it.
+	 *@param deadline the System.nanoTime() to stop at, or 0 for none.
+	 *@param limit the greatest number of candidates, or 0 for no limit.
+	 *************************************************************************/
+	void budget(long deadline, int limit) {
+		this.deadline = deadline;
+		this.limit = limit;
+	}
+
+	/*************************************************************************
+	 *Checks if the budget of the last call to generate() ran out, so that 
+	 *not every candidate was looked up.
+	 *@return true if the hits are incomplete.
+	 *************************************************************************/
+	boolean truncated() {
+		return truncated;
+	}
+
+	/*************************************************************************
+	 *Checks the budget, and remembers if it has run out.
+	 *@return true if no more candidates may be generated.
+	 *************************************************************************/
+	private boolean exhausted() {
+		if (truncated) return true;
+		if (limit > 0 && generated[TRANSPOSITION] + generated[SUBSTITUTION] + 
+			generated[DELETION] + generated[INSERTION] >= limit) {
+			truncated = true;
+		} else if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+			truncated = true;
+		}
+
+		return truncated;
+	}
+
+	/*************************************************************************
+	 *Gets the number of candidates of a kind generated since the last call 
+	 *to set().
+	 *@param kind TRANSPOSITION, SUBSTITUTION, DELETION or INSERTION.
+	 *@return the number of candidates.
+	 *************************************************************************/
+	int generated(int kind) {
+		return generated[kind];
+	}
+
+	/*************************************************************************
+	 *Looks up every candidate one edit away from a word, or as many as the 
+	 *budget allows: transpositions, deletions, substitutions and 
+	 *insertions, in that order.
+	 *@param s the misspelled word.
+	 *@param hits the list the candidates found in the dictionary are added to.
+	 *@param stats found, false positive and rejected candidates, as in
+	 *SpellChecker.Result.
+	 *************************************************************************/
+	void generate(String s, List<String> hits, int[] stats) {
+		set(s);
+		transpositions(hits, stats);
+		deletions(hits, stats);
+		substitutions(hits, stats);
+		insertions(hits, stats);
+	}
+
+	/*************************************************************************
+	 *Looks up the candidates one edit away from a word, or as many as the 
+	 *budget allows, and keeps the best ones. A kind of edit is skipped if 
+	 *none of its candidates can beat the worst suggestion kept.
+	 *@param s the misspelled word.
+	 *@param scorer scores the candidates found in the dictionary.
+	 *@param top the best candidates found.
+	 *@param stats found, false positive and rejected candidates, as in
+	 *SpellChecker.Result.
+	 *************************************************************************/
+	void generate(String s, Scorer scorer, Scorer.TopK top, int[] stats) {
+		set(s);
+		this.scorer = scorer;
+		this.top = top;
+		try {
+			if (!top.cannotBeat(scorer.bound(TRANSPOSITION))) {
+				transpositions(null, stats);
+			}
+			if (!top.cannotBeat(scorer.bound(DELETION))) deletions(null, stats);
+			if (!top.cannotBeat(scorer.bound(SUBSTITUTION))) {
+				substitutions(null, stats);
+			}
+			if (!top.cannotBeat(scorer.bound(INSERTION))) {
+				insertions(null, stats);
+			}
+		} finally {
+			this.scorer = null;
+			this.top = null;
+		}
+	}
+
+	/*************************************************************************
+	 *Looks up the candidates where two characters next to each other have 
+	 *been swapped.
+	 *************************************************************************/
+	void transpositions(List<String> hits, int[] stats) {
+		for (int i = 0; i + 1 < length && !exhausted(); i++) {
+			char a = word[i];
+			char b = word[i + 1];
+
+			if (a == b) continue;
+
+			generated[TRANSPOSITION]++;
+
+			long h = hash + (b - a) * power[length - 1 - i] + 
+				(a - b) * power[length - 2 - i];
+
+			if (!dict.mightContainHash(h)) {
+				stats[2]++;
+				continue;
+			}
+			buffer[i] = b;
+			buffer[i + 1] = a;
+			probe(length, hits, stats, TRANSPOSITION, a, b);
+			buffer[i] = a;
+			buffer[i + 1] = b;
+		}
+	}
+
+	/*************************************************************************
+	 *Looks up the candidates where one character has been replaced with 
+	 *another from the alphabet.
+	 *************************************************************************/
+	void substitutions(List<String> hits, int[] stats) {
+		for (int i = 0; i < length && !exhausted(); i++) {
+			char a = word[i];
+			long p = power[length - 1 - i];
+
+			for (int j = 0; j < alphabet.length; j++) {
+				char c = alphabet[j];
+
+				if (c == a) continue;
+
+				generated[SUBSTITUTION]++;
+
+				long h = hash + (c - a) * p;
+
+				if (!dict.mightContainHash(h)) {
+					stats[2]++;
+					continue;
+				}
+				buffer[i] = c;
+				probe(length, hits, stats, SUBSTITUTION, a, c);
+				buffer[i] = a;
+			}
+		}
+	}
+
+	/*************************************************************************
+	 *Looks up the candidates where one character is missing.
+	 *************************************************************************/
+	void deletions(List<String> hits, int[] stats) {
+		for (int i = 0; i < length && !exhausted(); i++) {
+			//Deleting either of two equal neighbours gives the same string.
+			if (i > 0 && word[i] == word[i - 1]) continue;
+
+			generated[DELETION]++;
+
+			long h = prefix[i] * power[length - 1 - i] + suffix[i + 1];
+
+			if (!dict.mightContainHash(h)) {
+				stats[2]++;
+				continue;
+			}
+			System.arraycopy(word, i + 1, buffer, i, length - 1 - i);
+			probe(length - 1, hits, stats, DELETION, word[i], word[i]);
+			System.arraycopy(word, i, buffer, i, length - i);
+		}
+	}
+
+	/*************************************************************************
+	 *Looks up the candidates where one character from the alphabet has been 
+	 *added at the start, at the end, or somewhere in between.
+	 *************************************************************************/
+	void insertions(List<String> hits, int[] stats) {
+		for (int i = 0; i <= length && !exhausted(); i++) {
+			long p = power[length - i];
+
+			for (int j = 0; j < alphabet.length; j++) {
+				char c = alphabet[j];
+
+				//Inserting a character in front of an equal one gives the 
+				//same string as inserting it after.
+				if (i > 0 && word[i - 1] == c) continue;
+
+				generated[INSERTION]++;
+
+				long h = (prefix[i] * P + c) * p + suffix[i];
+
+				if (!dict.mightContainHash(h)) {
+					stats[2]++;
+					continue;
+				}
+				System.arraycopy(word, i, buffer, i + 1, length - i);
+				buffer[i] = c;
+				probe(length + 1, hits, stats, INSERTION, c, c);
+				System.arraycopy(word, i, buffer, i, length - i);
+			}
+		}
+	}
+
+	/*************************************************************************
+	 *Looks up the candidate in the buffer, and turns it into a string if it 
+	 *is in the dictionary. The string is added to the hits, or offered to 
+	 *the best candidates when they are ranked.
+	 *@param kind the kind of edit that made the candidate.
+	 *@param from the character that was replaced, for substitutions.
+	 *@param to the character it was replaced with, for substitutions.
+	 *************************************************************************/
+	private void probe(int n, List<String> hits, int[] stats, int kind, 
+					   char from, char to) {
+		if (dict.contains(buffer, n)) {
+			String hit = new String(buffer, 0, n);
+
+			if (top != null) top.offer(hit, scorer.score(hit, kind, from, to));
+			else hits.add(hit);
+			stats[0]++;
+		} else stats[1]++;
+	}
+}
@@ -0,0 +1,212 @@
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/*****************************************************************************
+ *Completes prefixes with the most frequent words of a dictionary, for
+ *type-ahead.
+ *
+ *The words are kept in sorted order, so the words with a prefix are a
+ *range found by binary search. A segment tree over the frequencies gives
+ *the most frequent word of any range in logarithmic time. The best k
+ *completions are found by taking the best word of the range, splitting
+ *the range around it and repeating with the best of the remaining ranges.
+ *The time is O(k log n) however many words have the prefix, so even a
+ *one-letter prefix is answered without scanning its words.
+ *
+ *Words with the same frequency come in sorted order.
+ *****************************************************************************/
+class Completer {
+	private final String[] words;
+	private final int[] weights;
+	private final int[] best; //The segment tree, leaves at best[n + i]
+	private final long version; //The version of the dictionary
+
+	/*************************************************************************
+	 *A range of words and the index of its most frequent word.
+	 *************************************************************************/
+	private static class Range {
+		final int from, to, best;
+
+		Range(int from, int to, int best) {
+			this.from = from;
+			this.to = to;
+			this.best = best;
+		}
+	}
+
+	/*************************************************************************
+	 *Builds the completer from the words of a dictionary.
+	 *@param dict the dictionary.
+	 *@param frequencies the frequency of each word, or null. Words that are
+	 *missing have the frequency 0.
+	 *************************************************************************/
+	Completer(Dictionary dict, Map<String, Integer> frequencies) {
+		int n = dict.size();
+
+		version = dict.version();
+		words = new String[n];
+		weights = new int[n];
+
+		Iterator<String> iter = dict.words();
+
+		for (int i = 0; i < n; i++) {
+			words[i] = iter.next();
+			if (frequencies != null) {
+				Integer weight = frequencies.get(words[i]);
+
+				if (weight != null) weights[i] = weight;
+			}
+		}
+
+		best = new int[2 * n];
+		for (int i = 0; i < n; i++) best[n + i] = i;
+		for (int i = n - 1; i > 0; i--) {
+			best[i] = better(best[2 * i], best[2 * i + 1]);
+		}
+	}
+
+	/*************************************************************************
+	 *Reads word frequencies from a file with a word and its count on every
+	 *line, separated by whitespace.
+	 *@param f the file.
+	 *@param charset the encoding of the file.
+	 *@return the frequency of each word.
+	 *@throws IOException if the file could not be read, or a line has no
+	 *count.
+	 *************************************************************************/
+	static Map<String, Integer> readFrequencies(File f, Charset charset)
+		throws IOException {
+		Map<String, Integer> frequencies = new HashMap<String, Integer>();
+		BufferedReader in = new BufferedReader(
+			new InputStreamReader(new FileInputStream(f), charset));
+
+		try {
+			String line;
+			int number = 0;
+
+			while ((line = in.readLine()) != null) {
+				number++;
+
+				String[] fields = line.trim().split("\\s+");
+
+				if (fields.length == 1 && fields[0].isEmpty()) continue;
+				try {
+					long count = Long.parseLong(fields[fields.length - 1]);
+
+					frequencies.put(fields[0],
+									(int) Math.min(count, Integer.MAX_VALUE));
+				} catch (NumberFormatException e) {
+					throw new IOException(f + ":" + number +
+										  ": no frequency for \"" +
+										  fields[0] + "\"");
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		return frequencies;
+	}
+
+	/*************************************************************************
+	 *Finds the most frequent words that start with a prefix.
+	 *@param prefix the prefix.
+	 *@param k the greatest number of words to find.
+	 *@return the words, most frequent first.
+	 *************************************************************************/
+	List<String> complete(String prefix, int k) {
+		int from = lowerBound(prefix);
+		String end = BST.prefixEnd(prefix);
+		int to = (end == null) ? words.length : lowerBound(end);
+		if (from >= to || k <= 0) return new ArrayList<String>();
+
+		//Each word taken splits its range in two, so there are never more
+		//ranges than one more than the words taken.
+		int n = Math.min(k, to - from);
+		List<String> found = new ArrayList<String>(n);
+		PriorityQueue<Range> ranges = new PriorityQueue<Range>(
+			n + 1, new Comparator<Range>() {
+				public int compare(Range a, Range b) {
+					if (a.best == b.best) return 0;
+					return (better(a.best, b.best) == a.best) ? -1 : 1;
+				}
+			});
+
+		ranges.add(new Range(from, to, best(from, to)));
+		while (found.size() < k && !ranges.isEmpty()) {
+			Range r = ranges.poll();
+
+			found.add(words[r.best]);
+			if (r.from < r.best) {
+				ranges.add(new Range(r.from, r.best, best(r.from, r.best)));
+			}
+			if (r.best + 1 < r.to) {
+				ranges.add(new Range(r.best + 1, r.to, best(r.best + 1, r.to)));
+			}
+		}
+
+		return found;
+	}
+
+	/*************************************************************************
+	 *Finds the most frequent word in a range with the segment tree.
+	 *@param from the start of the range, inclusive.
+	 *@param to the end of the range, exclusive.
+	 *@return the index of the word.
+	 *************************************************************************/
+	private int best(int from, int to) {
+		int n = words.length;
+		int found = -1;
+
+		for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+			if ((l & 1) == 1) found = better(found, best[l++]);
+			if ((r & 1) == 1) found = better(found, best[--r]);
+		}
+
+		return found;
+	}
+
+	/*************************************************************************
+	 *Chooses the more frequent of two words, or the first in sorted order
+	 *if they are equally frequent.
+	 *@return the index of the better word. -1 stands for no word.
+	 *************************************************************************/
+	private int better(int a, int b) {
+		if (a < 0) return b;
+		if (b < 0) return a;
+		if (weights[a] != weights[b]) return (weights[a] > weights[b]) ? a : b;
+		return Math.min(a, b);
+	}
+
+	/*************************************************************************
+	 *Finds the first word that is not less than a string.
+	 *@return the index of the word, or the number of words if there is none.
+	 *************************************************************************/
+	private int lowerBound(String s) {
+		int lo = 0, hi = words.length;
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+
+			if (words[mid].compareTo(s) < 0) lo = mid + 1;
+			else hi = mid;
+		}
+
+		return lo;
+	}
+
+	/******************************************
+	 *Gets the version of the dictionary the completer was built from.
+	 *@return the version of the dictionary.
+	 ******************************************/
+	long version() {
+		return version;
+	}
+}
@@ -0,0 +1,110 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*****************************************************************************
+ *Recognizes Norwegian compounds, words made up of dictionary words, such
+ *as "familiebilforsikring" ("familie" + "bil" + "forsikring"). A part may
+ *be followed by the linking letter s or e before the next part, as in
+ *"arbeidsliv" ("arbeid" + s + "liv") and "barnehage" ("barn" + e + "hage").
+ *
+ *The word is segmented by dynamic programming over its prefixes: a prefix
+ *can be segmented if it ends with a part that starts where a shorter
+ *segmentable prefix, or its linking letter, ends. Each prefix is only
+ *worked out once per word, so a word of n characters costs at most n^2/2
+ *lookups. The hash of each part is extended one character at a time and
+ *checked against the dictionary's filter, so most of the lookups never
+ *reach the dictionary itself.
+ *
+ *Parts are at least MIN_PART characters long, so that short words like
+ *"en" and "er" do not let misspellings through as compounds.
+ *****************************************************************************/
+class CompoundChecker {
+	static final int MIN_PART = 3;
+	static final int MAX_LENGTH = 64; //Longer words are never compounds
+	private static final long P = BloomFilter.PRIME;
+
+	private final Dictionary dict;
+
+	/*************************************************************************
+	 *Creates a compound checker.
+	 *@param dict the dictionary the parts are looked up in.
+	 *************************************************************************/
+	CompoundChecker(Dictionary dict) {
+		this.dict = dict;
+	}
+
+	/*************************************************************************
+	 *Checks if a word is made up of at least two dictionary words.
+	 *@param s the word.
+	 *@return true if the word is a compound.
+	 *************************************************************************/
+	boolean isCompound(String s) {
+		return segment(s) != null;
+	}
+
+	/*************************************************************************
+	 *Splits a word into dictionary words. Where there is more than one
+	 *way, the one with the longest last part is chosen.
+	 *@param s the word.
+	 *@return the parts, with each linking letter as a part of its own, or
+	 *null if the word is not a compound of at least two words.
+	 *************************************************************************/
+	List<String> segment(String s) {
+		int n = s.length();
+
+		if (n < 2 * MIN_PART || n > MAX_LENGTH) return null;
+
+		char[] word = s.toCharArray();
+		char[] part = new char[n];
+		//start[j] is where the part that ends at j starts, if the first j
+		//characters can be segmented, 0 for the first part and -1 if not.
+		int[] start = new int[n + 1];
+
+		Arrays.fill(start, -1);
+		for (int i = 0; i + MIN_PART <= n; i++) {
+			if (i > 0 && !canFollow(word, start, i)) continue;
+
+			long h = 1;
+
+			for (int j = i; j < n; j++) {
+				h = h * P + word[j];
+				part[j - i] = word[j];
+				if (j + 1 - i < MIN_PART || start[j + 1] >= 0) continue;
+				//The whole word is not a compound of itself.
+				if (i == 0 && j + 1 == n) continue;
+				if (dict.mightContainHash(h) && dict.contains(part, j + 1 - i)) {
+					start[j + 1] = i;
+				}
+			}
+		}
+
+		if (start[n] < 0) return null;
+
+		List<String> parts = new ArrayList<String>();
+
+		for (int j = n; j > 0; ) {
+			int i = start[j];
+
+			parts.add(0, s.substring(i, j));
+			if (i > 0 && start[i] < 0) {
+				//The part before ends with a linking letter.
+				parts.add(0, s.substring(i - 1, i));
+				i--;
+			}
+			j = i;
+		}
+
+		return parts;
+	}
+
+	/*************************************************************************
+	 *Checks if a part may start at a position: right after another part,
+	 *or after another part and a linking letter.
+	 *************************************************************************/
+	private static boolean canFollow(char[] word, int[] start, int i) {
+		if (start[i] >= 0) return true;
+		return i >= MIN_PART + 1 && (word[i - 1] == 's' || word[i - 1] == 'e') &&
+			start[i - 1] >= 0;
+	}
+}
@@ -0,0 +1,154 @@
+/*****************************************************************************
+ *A Bloom filter that keeps a small counter instead of a single bit in each 
+ *slot, so that words can be removed again without rebuilding the filter.
+ *The counters are 4 bits wide and packed sixteen to a long. A counter that 
+ *reaches its maximum stays there, since its true count is then unknown; 
+ *with a properly sized filter this practically never happens.
+ *****************************************************************************/
+class CountingBloomFilter {
+	private static final int MAX = 15;
+
+	private final long[] counters;
+	private final long numCounters;
+	private final int numHashes;
+	private final int capacity;
+	private int count;
+
+	/*************************************************************************
+	 *Creates an empty filter sized for the specified number of words.
+	 *@param expected the number of words the filter should hold.
+	 *@param falsePositiveRate the wanted false positive rate at that size.
+	 *************************************************************************/
+	CountingBloomFilter(int expected, double falsePositiveRate) {
+		int n = Math.max(expected, 1);
+		double ln2 = Math.log(2);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / 
+								  (ln2 * ln2));
+
+		m = Math.max(16, (m + 15) & ~15L);
+		counters = new long[(int) (m >>> 4)];
+		numCounters = m;
+		numHashes = Math.max(1, (int) Math.round((double) m / n * ln2));
+		capacity = n;
+	}
+
+	/************************************************
+	 *Adds a string to the filter.
+	 *@param s the string to be added
+	 *************************************************/
+	void add(CharSequence s) {
+		update(BloomFilter.hash(s), 1);
+		count++;
+	}
+
+	/*************************************************************************
+	 *Removes a string from the filter. The string must have been added 
+	 *before, or other strings may be reported as missing.
+	 *@param s the string to be removed
+	 *************************************************************************/
+	void remove(CharSequence s) {
+		update(BloomFilter.hash(s), -1);
+		count--;
+	}
+
+	/*************************************************************************
+	 *Adds to the counter of every slot of a hash value, leaving counters 
+	 *that have reached their maximum alone.
+	 *************************************************************************/
+	private void update(long h, int delta) {
+		long a = BloomFilter.mix(h);
+		long b = BloomFilter.mix(h ^ BloomFilter.GOLDEN) | 1;
+
+		for (int i = 0; i < numHashes; i++) {
+			long c = Long.remainderUnsigned(a + i * b, numCounters);
+			int index = (int) (c >>> 4);
+			int shift = (int) (c & 15) << 2;
+			long value = (counters[index] >>> shift) & MAX;
+
+			if (value == MAX || value + delta < 0) continue;
+			counters[index] += (long) delta << shift;
+		}
+	}
+
+	/*************************************************************************
+	 *Checks if a string might have been added to the filter.
+	 *@param s the string to be checked.
+	 *@return false if the string is definitely not in the filter.
+	 *************************************************************************/
+	boolean mightContain(CharSequence s) {
+		return mightContainHash(BloomFilter.hash(s));
+	}
+
+	/*************************************************************************
+	 *Checks if a string might have been added to the filter, by its hash 
+	 *value.
+	 *@param h the hash value of the string.
+	 *@return false if the string is definitely not in the filter.
+	 *************************************************************************/
+	boolean mightContainHash(long h) {
+		long a = BloomFilter.mix(h);
+		long b = BloomFilter.mix(h ^ BloomFilter.GOLDEN) | 1;
+
+		for (int i = 0; i < numHashes; i++) {
+			long c = Long.remainderUnsigned(a + i * b, numCounters);
+
+			if (((counters[(int) (c >>> 4)] >>> ((c & 15) << 2)) & MAX) == 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/******************************************
+	 *Gets the number of slots whose counter is not zero.
+	 *@return the number of used slots.
+	 ******************************************/
+	long usedCount() {
+		long n = 0;
+
+		for (int i = 0; i < counters.length; i++) {
+			long w = counters[i];
+
+			//Folds each 4-bit counter into its lowest bit before counting.
+			w |= w >>> 2;
+			w |= w >>> 1;
+			n += Long.bitCount(w & 0x1111111111111111L);
+		}
+
+		return n;
+	}
+
+	/*************************************************************************
+	 *Calculates the false positive rate of the filter from the share of 
+	 *slots that are in use, which is what a lookup of a non-word will see.
+	 *@return the expected false positive rate.
+	 *************************************************************************/
+	double falsePositiveRate() {
+		return Math.pow((double) usedCount() / numCounters, numHashes);
+	}
+
+	/******************************************
+	 *Gets the number of strings currently in the filter.
+	 *@return the number of strings.
+	 ******************************************/
+	int count() {
+		return count;
+	}
+
+	/******************************************
+	 *Gets the number of words the filter was sized for.
+	 *@return the capacity of the filter.
+	 ******************************************/
+	int capacity() {
+		return capacity;
+	}
+
+	long numCounters() {
+		return numCounters;
+	}
+
+	int numHashes() {
+		return numHashes;
+	}
+}
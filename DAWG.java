@@ -0,0 +1,481 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/*****************************************************************************
+ *A read-only dictionary stored as a minimized directed acyclic word graph.
+ *Words share both their prefixes and their suffixes, which suits the 
+ *Norwegian inflections ("bil", "bilen", "biler", "bilene") well.
+ *The graph is built once from sorted words and then frozen into a few 
+ *flat arrays, so there are no objects per word or per state.
+ *****************************************************************************/
+class DAWG implements Dictionary {
+	private int[] firstEdge;   //Index of each state's first edge, plus an end
+	private char[] labels;     //The character of each edge
+	private int[] targets;     //The state each edge leads to
+	private boolean[] accept;  //Whether a word may end in each state
+	private int size;
+
+	/*********************************************************************
+	 *A state used while building the graph, before it is frozen.
+	 *********************************************************************/
+	private static class Node {
+		char[] labels = new char[2];
+		Node[] children = new Node[2];
+		int n;
+		boolean accept;
+		int id = -1;
+
+		Node last() {
+			return (n == 0) ? null : children[n - 1];
+		}
+
+		void add(char c, Node x) {
+			if (n == labels.length) {
+				labels = Arrays.copyOf(labels, n * 2);
+				children = Arrays.copyOf(children, n * 2);
+			}
+			labels[n] = c;
+			children[n++] = x;
+		}
+
+		/*************************************************************
+		 *Gets a key that is equal for two states exactly when they 
+		 *accept the same suffixes. Only valid once every child has 
+		 *been registered.
+		 *************************************************************/
+		String key() {
+			StringBuilder sb = new StringBuilder(n * 6 + 1);
+
+			sb.append(accept ? '1' : '0');
+			for (int i = 0; i < n; i++) {
+				sb.append(labels[i]).append(children[i].id).append(',');
+			}
+
+			return sb.toString();
+		}
+	}
+
+	/*************************************************************************
+	 *Builds the graph from the specified words. The words are sorted first 
+	 *unless they already are, and duplicates are dropped.
+	 *@param words the words that will compose the dictionary.
+	 *************************************************************************/
+	DAWG(String[] words) {
+		String[] sorted = words;
+		boolean isSorted = true;
+
+		for (int i = 1; i < sorted.length && isSorted; i++) {
+			if (sorted[i - 1].compareTo(sorted[i]) > 0) isSorted = false;
+		}
+		if (!isSorted) {
+			sorted = words.clone();
+			Arrays.sort(sorted);
+		}
+
+		HashMap<String, Node> register = new HashMap<String, Node>();
+		Node root = new Node();
+		String prev = null;
+		int states = 0;
+
+		for (int i = 0; i < sorted.length; i++) {
+			String word = sorted[i];
+
+			if (word.equals(prev)) continue;
+
+			int common = 0;
+
+			if (prev != null) {
+				int max = Math.min(prev.length(), word.length());
+
+				while (common < max && 
+					   prev.charAt(common) == word.charAt(common)) common++;
+			}
+
+			Node last = root;
+
+			for (int j = 0; j < common; j++) last = last.last();
+			if (last.n > 0) states = replaceOrRegister(last, register, states);
+
+			for (int j = common; j < word.length(); j++) {
+				Node x = new Node();
+
+				last.add(word.charAt(j), x);
+				last = x;
+			}
+			last.accept = true;
+			prev = word;
+			size++;
+		}
+		if (root.n > 0) states = replaceOrRegister(root, register, states);
+		root.id = states++;
+
+		freeze(root, register, states);
+	}
+
+	/*************************************************************************
+	 *Replaces the most recently added child of a state with an equivalent 
+	 *registered state, or registers it if there is none. Used recursively, 
+	 *so the whole path of the previous word is minimized.
+	 *@return the number of registered states.
+	 *************************************************************************/
+	private int replaceOrRegister(Node x, HashMap<String, Node> register, 
+								  int states) {
+		Node child = x.last();
+
+		if (child.n > 0) states = replaceOrRegister(child, register, states);
+
+		String key = child.key();
+		Node same = register.get(key);
+
+		if (same != null) {
+			x.children[x.n - 1] = same;
+		} else {
+			child.id = states++;
+			register.put(key, child);
+		}
+
+		return states;
+	}
+
+	/*************************************************************************
+	 *Copies the registered states into the flat arrays used for lookups.
+	 *************************************************************************/
+	private void freeze(Node root, HashMap<String, Node> register, int states) {
+		Node[] byId = new Node[states];
+		int edges = 0;
+
+		for (Node x : register.values()) {
+			byId[x.id] = x;
+			edges += x.n;
+		}
+		byId[root.id] = root;
+		edges += root.n;
+
+		firstEdge = new int[states + 1];
+		labels = new char[edges];
+		targets = new int[edges];
+		accept = new boolean[states];
+
+		//The root is numbered last, so it is stored first by renumbering.
+		int e = 0;
+
+		for (int i = 0; i < states; i++) {
+			Node x = byId[(i == 0) ? root.id : i - 1];
+
+			firstEdge[i] = e;
+			accept[i] = x.accept;
+			for (int j = 0; j < x.n; j++) {
+				labels[e] = x.labels[j];
+				targets[e++] = (x.children[j] == root) ? 0 : x.children[j].id + 1;
+			}
+		}
+		firstEdge[states] = e;
+	}
+
+	/*************************************************************************
+	 *Follows the edge with the specified character out of a state.
+	 *The edges of a state are sorted, so a binary search is used.
+	 *@return the state the edge leads to, or -1 if there is no such edge.
+	 *************************************************************************/
+	int step(int state, char c) {
+		int lo = firstEdge[state];
+		int hi = firstEdge[state + 1] - 1;
+
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+
+			if (labels[mid] < c) lo = mid + 1;
+			else if (labels[mid] > c) hi = mid - 1;
+			else return targets[mid];
+		}
+
+		return -1;
+	}
+
+	public boolean contains(String s) {
+		int state = 0;
+
+		for (int i = 0; i < s.length() && state >= 0; i++) {
+			state = step(state, s.charAt(i));
+		}
+
+		return state >= 0 && accept[state];
+	}
+
+	public boolean contains(char[] word, int length) {
+		int state = 0;
+
+		for (int i = 0; i < length && state >= 0; i++) {
+			state = step(state, word[i]);
+		}
+
+		return state >= 0 && accept[state];
+	}
+
+	/*************************************************************************
+	 *Checks which of a number of sorted words are in the graph. Sorted 
+	 *words share prefixes with the word before them, so the states reached 
+	 *by each prefix are kept and only the characters after the shared 
+	 *prefix are followed.
+	 *@param words the words, in sorted order. Duplicates are allowed.
+	 *@param n the number of words.
+	 *@param found receives true for each word that is in the graph.
+	 *************************************************************************/
+	public void containsAll(String[] words, int n, boolean[] found) {
+		int[] states = new int[16]; //The state after each prefix
+		int known = 0; //The length of the prefix the states are known for
+		String last = "";
+
+		states[0] = 0;
+		for (int i = 0; i < n; i++) {
+			String s = words[i];
+			int shared = 0;
+			int max = Math.min(Math.min(s.length(), last.length()), known);
+
+			while (shared < max && s.charAt(shared) == last.charAt(shared)) {
+				shared++;
+			}
+			if (s.length() >= states.length) {
+				states = Arrays.copyOf(states, 2 * s.length());
+			}
+
+			int state = states[shared];
+
+			known = shared;
+			while (known < s.length() && state >= 0) {
+				state = step(state, s.charAt(known++));
+				states[known] = state;
+			}
+			//A missing state ends the known prefix, as it cannot go on.
+			if (state < 0) known--;
+			found[i] = state >= 0 && known == s.length() && accept[state];
+			last = s;
+		}
+	}
+
+	/*************************************************************************
+	 *A lookup in the graph is already a single walk over the characters of 
+	 *the word, so there is no separate prefilter.
+	 *************************************************************************/
+	public boolean mightContain(String s) {
+		return true;
+	}
+
+	public boolean mightContainHash(long hash) {
+		return true;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/*************************************************************************
+	 *The dictionary is read-only, so its version never changes.
+	 *************************************************************************/
+	public long version() {
+		return 0;
+	}
+
+	public String min() {
+		StringBuilder sb = new StringBuilder();
+		int state = 0;
+
+		while (!accept[state] && firstEdge[state] < firstEdge[state + 1]) {
+			sb.append(labels[firstEdge[state]]);
+			state = targets[firstEdge[state]];
+		}
+
+		return sb.toString();
+	}
+
+	public String max() {
+		StringBuilder sb = new StringBuilder();
+		int state = 0;
+
+		while (firstEdge[state] < firstEdge[state + 1]) {
+			sb.append(labels[firstEdge[state + 1] - 1]);
+			state = targets[firstEdge[state + 1] - 1];
+		}
+
+		return sb.toString();
+	}
+
+	/******************************************
+	 *Gets the number of states in the graph.
+	 *@return the number of states.
+	 ******************************************/
+	public int states() {
+		return accept.length;
+	}
+
+	/******************************************
+	 *Gets the number of edges in the graph.
+	 *@return the number of edges.
+	 ******************************************/
+	public int edges() {
+		return labels.length;
+	}
+
+	/*************************************************************************
+	 *Estimates the heap used by the graph's arrays.
+	 *@return the approximate number of bytes used.
+	 *************************************************************************/
+	public long memoryUsage() {
+		return 4L * firstEdge.length + 2L * labels.length + 
+			4L * targets.length + accept.length;
+	}
+
+	public Iterator<String> words() {
+		return new DAWGIter();
+	}
+
+	/*************************************************************************
+	 *Finds every word within the specified edit distance of a word, where 
+	 *an edit is a transposition of two neighbouring characters, a 
+	 *substitution, a deletion or an insertion.
+	 *
+	 *The graph is walked depth first while one row of the edit distance 
+	 *table is calculated per character of the path. A branch is left as 
+	 *soon as every entry of its row exceeds the maximum distance, since no 
+	 *word below it can come closer than that. Most of the graph is 
+	 *therefore never visited.
+	 *@param s the misspelled word.
+	 *@param maxDistance the maximum number of edits.
+	 *@param hits the list the words found are added to, closest first and 
+	 *in sorted order within each distance. The word itself is left out.
+	 *@return the number of states visited.
+	 *************************************************************************/
+	int search(String s, int maxDistance, List<String> hits) {
+		int n = s.length();
+		int[][] rows = new int[n + maxDistance + 2][n + 1];
+		char[] path = new char[n + maxDistance + 1];
+		List<List<String>> found = new ArrayList<List<String>>();
+
+		for (int d = 0; d <= maxDistance; d++) {
+			found.add(new ArrayList<String>());
+		}
+		for (int j = 0; j <= n; j++) rows[0][j] = j;
+
+		if (n <= maxDistance && accept[0]) found.get(n).add("");
+
+		int visited = search(0, 1, s, maxDistance, rows, path, found);
+
+		//The word itself is not a suggestion for itself.
+		for (int d = 1; d <= maxDistance; d++) hits.addAll(found.get(d));
+
+		return visited;
+	}
+
+	/*************************************************************************
+	 *Used recursively to calculate the next row of the edit distance table 
+	 *for every edge out of a state.
+	 *@return the number of states visited below the state.
+	 *************************************************************************/
+	private int search(int state, int depth, String s, int maxDistance, 
+					   int[][] rows, char[] path, List<List<String>> found) {
+		int n = s.length();
+		int visited = 0;
+
+		if (depth >= rows.length) return 0;
+
+		for (int e = firstEdge[state]; e < firstEdge[state + 1]; e++) {
+			char c = labels[e];
+			int[] prev = rows[depth - 1];
+			int[] row = rows[depth];
+			int min = row[0] = depth;
+
+			path[depth - 1] = c;
+			for (int j = 1; j <= n; j++) {
+				int cost = (s.charAt(j - 1) == c) ? 0 : 1;
+				int d = Math.min(Math.min(prev[j] + 1, row[j - 1] + 1), 
+								 prev[j - 1] + cost);
+
+				if (depth > 1 && j > 1 && c == s.charAt(j - 2) && 
+					path[depth - 2] == s.charAt(j - 1)) {
+					d = Math.min(d, rows[depth - 2][j - 2] + 1);
+				}
+				row[j] = d;
+				if (d < min) min = d;
+			}
+
+			visited++;
+			if (min > maxDistance) continue;
+
+			int target = targets[e];
+
+			if (accept[target] && row[n] <= maxDistance) {
+				found.get(row[n]).add(new String(path, 0, depth));
+			}
+			visited += search(target, depth + 1, s, maxDistance, rows, path, 
+							  found);
+		}
+
+		return visited;
+	}
+
+	/*************************************************************************
+	 *Iterates over the words in sorted order with a depth-first walk. 
+	 *The stack holds the next edge to try at each depth, so only the 
+	 *current path is kept in memory.
+	 *************************************************************************/
+	class DAWGIter implements Iterator<String> {
+		int[] edge = new int[16];   //Next edge to follow at each depth
+		int[] state = new int[16];  //State at each depth
+		char[] path = new char[16];
+		int depth;
+		String next;
+
+		DAWGIter() {
+			state[0] = 0;
+			edge[0] = firstEdge[0];
+			next = accept[0] ? "" : advance();
+		}
+
+		private String advance() {
+			while (depth >= 0) {
+				int s = state[depth];
+
+				if (edge[depth] == firstEdge[s + 1]) {
+					depth--;
+					continue;
+				}
+
+				int e = edge[depth]++;
+
+				if (depth + 1 == state.length) {
+					edge = Arrays.copyOf(edge, depth * 2);
+					state = Arrays.copyOf(state, depth * 2);
+					path = Arrays.copyOf(path, depth * 2);
+				}
+				path[depth] = labels[e];
+				depth++;
+				state[depth] = targets[e];
+				edge[depth] = firstEdge[targets[e]];
+				if (accept[targets[e]]) return new String(path, 0, depth);
+			}
+
+			return null;
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public String next() {
+			if (next == null) throw new NoSuchElementException();
+
+			String s = next;
+
+			next = advance();
+			return s;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,263 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/*****************************************************************************
+ *An index of every string that can be made by deleting up to a few 
+ *characters from a dictionary word, for finding suggestions without 
+ *generating any candidates from the alphabet.
+ *
+ *Two strings are within edit distance d of each other only if deleting at 
+ *most d characters from each gives a common string. A query therefore 
+ *only generates the deletions of the misspelled word, looks each one up 
+ *and checks the real distance of the words found.
+ *
+ *Each entry is a single long: the high bits hold a hash of a deletion 
+ *and the low bits hold the index of the word it came from. The entries 
+ *are sorted, so the words sharing a deletion are found by binary search.
+ *****************************************************************************/
+class DeletionIndex {
+	private final String[] words;
+	private final long[] entries;
+	private final int idBits;
+	private final int maxDistance;
+	private final long buildTime;
+
+	/*************************************************************************
+	 *Builds the index from the words of a dictionary.
+	 *@param dict the dictionary.
+	 *@param maxDistance the greatest edit distance the index can answer.
+	 *************************************************************************/
+	DeletionIndex(Dictionary dict, int maxDistance) {
+		long start = System.nanoTime();
+
+		this.maxDistance = maxDistance;
+		words = new String[dict.size()];
+
+		Iterator<String> iter = dict.words();
+
+		for (int i = 0; i < words.length; i++) words[i] = iter.next();
+
+		idBits = Math.max(1, 64 - Long.numberOfLeadingZeros(words.length));
+
+		long[] all = new long[words.length * 8];
+		long[] own = new long[64];
+		char[] buffer = new char[64];
+		long idMask = (1L << idBits) - 1;
+		int n = 0;
+
+		for (int id = 0; id < words.length; id++) {
+			String w = words[id];
+
+			if (buffer.length < w.length()) buffer = new char[w.length()];
+			w.getChars(0, w.length(), buffer, 0);
+
+			int count = deletions(buffer, w.length(), maxDistance, own, 0, 0);
+
+			if (count > own.length) {
+				own = new long[count];
+				count = deletions(buffer, w.length(), maxDistance, own, 0, 0);
+			}
+
+			//The same deletion is often reached in several ways.
+			Arrays.sort(own, 0, count);
+			for (int i = 0; i < count; i++) {
+				if (i > 0 && own[i] == own[i - 1]) continue;
+				if (n == all.length) all = Arrays.copyOf(all, n * 2);
+				all[n++] = (own[i] & ~idMask) | id;
+			}
+		}
+
+		entries = Arrays.copyOf(all, n);
+		Arrays.sort(entries);
+		buildTime = System.nanoTime() - start;
+	}
+
+	/*************************************************************************
+	 *Used recursively to collect the hashes of a string and of every string 
+	 *made by deleting up to the specified number of characters from it.
+	 *Deletions are made from left to right, so each combination of 
+	 *positions is only visited once.
+	 *@param c the characters of the string, which are restored afterwards.
+	 *@param length the length of the string.
+	 *@param left the number of characters that may still be deleted.
+	 *@param out the array the hashes are written to, if there is room.
+	 *@param n the number of hashes written so far.
+	 *@param from the first position that may be deleted.
+	 *@return the number of hashes, which may be greater than out.length.
+	 *************************************************************************/
+	private static int deletions(char[] c, int length, int left, long[] out, 
+								 int n, int from) {
+		if (n < out.length) out[n] = BloomFilter.mix(BloomFilter.hash(c, length));
+		n++;
+
+		if (left == 0 || length == 0) return n;
+
+		for (int i = from; i < length; i++) {
+			char removed = c[i];
+
+			System.arraycopy(c, i + 1, c, i, length - 1 - i);
+			n = deletions(c, length - 1, left - 1, out, n, i);
+			System.arraycopy(c, i, c, i + 1, length - 1 - i);
+			c[i] = removed;
+		}
+
+		return n;
+	}
+
+	/*************************************************************************
+	 *Finds every word within the specified edit distance of a word, where 
+	 *an edit is a transposition of two neighbouring characters, a 
+	 *substitution, a deletion or an insertion.
+	 *@param s the misspelled word.
+	 *@param maxDistance the maximum number of edits, at most the distance 
+	 *the index was built for.
+	 *@param hits the list the words found are added to, closest first and 
+	 *in sorted order within each distance. The word itself is left out.
+	 *@return the number of words whose distance was checked.
+	 *************************************************************************/
+	int search(String s, int maxDistance, List<String> hits) {
+		int max = Math.min(maxDistance, this.maxDistance);
+		char[] c = s.toCharArray();
+		long[] own = new long[64];
+		int count = deletions(c, c.length, max, own, 0, 0);
+
+		if (count > own.length) {
+			own = new long[count];
+			count = deletions(c, c.length, max, own, 0, 0);
+		}
+
+		int[] ids = new int[16];
+		int found = 0;
+		long idMask = (1L << idBits) - 1;
+
+		for (int i = 0; i < count; i++) {
+			long key = own[i] & ~idMask;
+			int at = lowerBound(key);
+
+			for (; at < entries.length && 
+					 ((entries[at] ^ key) & ~idMask) == 0; at++) {
+				if (found == ids.length) ids = Arrays.copyOf(ids, found * 2);
+				ids[found++] = (int) (entries[at] & idMask);
+			}
+		}
+
+		Arrays.sort(ids, 0, found);
+
+		int checked = 0;
+		int[] distances = new int[found];
+
+		for (int i = 0; i < found; i++) {
+			if (i > 0 && ids[i] == ids[i - 1]) distances[i] = 0;
+			else {
+				distances[i] = distance(s, words[ids[i]], max);
+				checked++;
+			}
+		}
+
+		//A distance of zero marks the word itself and repeated indexes.
+		for (int d = 1; d <= max; d++) {
+			for (int i = 0; i < found; i++) {
+				if (distances[i] == d) hits.add(words[ids[i]]);
+			}
+		}
+
+		return checked;
+	}
+
+	/*************************************************************************
+	 *Finds the first entry that is not less than a key.
+	 *************************************************************************/
+	private int lowerBound(long key) {
+		int lo = 0;
+		int hi = entries.length;
+
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+
+			if (entries[mid] < key) lo = mid + 1;
+			else hi = mid;
+		}
+
+		return lo;
+	}
+
+	/*************************************************************************
+	 *Calculates the edit distance between two strings, counting a 
+	 *transposition of two neighbouring characters as one edit.
+	 *@param a the first string.
+	 *@param b the second string.
+	 *@param max the greatest distance of interest.
+	 *@return the distance, or max + 1 if it is greater than max.
+	 *************************************************************************/
+	static int distance(String a, String b, int max) {
+		int n = a.length();
+		int m = b.length();
+
+		if (Math.abs(n - m) > max) return max + 1;
+
+		int[] prev2 = new int[m + 1];
+		int[] prev = new int[m + 1];
+		int[] row = new int[m + 1];
+
+		for (int j = 0; j <= m; j++) prev[j] = j;
+
+		for (int i = 1; i <= n; i++) {
+			int min = row[0] = i;
+
+			for (int j = 1; j <= m; j++) {
+				int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
+				int d = Math.min(Math.min(prev[j] + 1, row[j - 1] + 1), 
+								 prev[j - 1] + cost);
+
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && 
+					a.charAt(i - 2) == b.charAt(j - 1)) {
+					d = Math.min(d, prev2[j - 2] + 1);
+				}
+				row[j] = d;
+				if (d < min) min = d;
+			}
+			if (min > max) return max + 1;
+
+			int[] t = prev2;
+
+			prev2 = prev;
+			prev = row;
+			row = t;
+		}
+
+		return Math.min(prev[m], max + 1);
+	}
+
+	/******************************************
+	 *Gets the number of entries in the index.
+	 *@return the number of entries.
+	 ******************************************/
+	public int entries() {
+		return entries.length;
+	}
+
+	/*************************************************************************
+	 *Estimates the heap used by the index, not counting the words.
+	 *@return the approximate number of bytes used.
+	 *************************************************************************/
+	public long memoryUsage() {
+		return 8L * entries.length + 4L * words.length;
+	}
+
+	/******************************************
+	 *Gets the time it took to build the index.
+	 *@return the build time in nanoseconds.
+	 ******************************************/
+	public long buildTime() {
+		return buildTime;
+	}
+
+	/******************************************
+	 *Gets the greatest edit distance the index can answer.
+	 *@return the greatest edit distance.
+	 ******************************************/
+	public int maxDistance() {
+		return maxDistance;
+	}
+}
@@ -0,0 +1,84 @@
+import java.util.Iterator;
+
+/*****************************************************************************
+ *The operations the spellchecker needs from a dictionary, so that the 
+ *binary search tree can be replaced by other word stores.
+ *****************************************************************************/
+interface Dictionary {
+
+	/************************************************
+	 *Checks if the dictionary contains the specified word.
+	 *@param s the word to be searched for.
+	 *@return true if the word is in the dictionary, false if not.
+	 *************************************************/
+	boolean contains(String s);
+
+	/*************************************************************************
+	 *Checks if the dictionary contains the word made up of the first 
+	 *characters of an array, without creating a string for it.
+	 *@param word the characters of the word.
+	 *@param length the length of the word.
+	 *@return true if the word is in the dictionary, false if not.
+	 *************************************************************************/
+	boolean contains(char[] word, int length);
+
+	/*************************************************************************
+	 *Checks which of a number of words are in the dictionary. The words 
+	 *are sorted, so they can be looked up together in one walk over the 
+	 *dictionary instead of one search each.
+	 *Only whole-word checks come this way: the CHECK batches of SpellServer 
+	 *and the chunks of BatchChecker. Suggestions do not, see 
+	 *CandidateGenerator.
+	 *@param words the words, in sorted order. Duplicates are allowed.
+	 *@param n the number of words.
+	 *@param found receives true for each word that is in the dictionary.
+	 *************************************************************************/
+	void containsAll(String[] words, int n, boolean[] found);
+
+	/*************************************************************************
+	 *Cheaply checks if the dictionary might contain the specified word.
+	 *Used to reject most non-words before calling contains().
+	 *@param s the word to be checked.
+	 *@return false if the word is definitely not in the dictionary.
+	 *************************************************************************/
+	boolean mightContain(String s);
+
+	/*************************************************************************
+	 *Cheaply checks if the dictionary might contain a word, by its hash 
+	 *value as calculated by BloomFilter.hash().
+	 *@param hash the hash value of the word.
+	 *@return false if the word is definitely not in the dictionary.
+	 *************************************************************************/
+	boolean mightContainHash(long hash);
+
+	/******************************************
+	 *Gets the number of words in the dictionary.
+	 *@return the number of words in the dictionary.
+	 ******************************************/
+	int size();
+
+	/******************************************
+	 *Gets the lowest word in the dictionary.
+	 *@return the lowest word in the dictionary.
+	 ******************************************/
+	String min();
+
+	/******************************************
+	 *Gets the highest word in the dictionary.
+	 *@return the highest word in the dictionary.
+	 ******************************************/
+	String max();
+
+	/******************************************
+	 *Gets an iterator over the words in sorted order.
+	 *@return an iterator over the words.
+	 ******************************************/
+	Iterator<String> words();
+
+	/*************************************************************************
+	 *Gets a number that changes every time words are added or removed, so 
+	 *that anything derived from the dictionary can tell it is out of date.
+	 *@return the version of the dictionary.
+	 *************************************************************************/
+	long version();
+}
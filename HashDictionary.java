@@ -0,0 +1,337 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*****************************************************************************
+ *A read-only dictionary in an open-addressing hash table, for the fastest
+ *exact lookups.
+ *
+ *There are no objects per word. The words are packed in sorted order into
+ *one byte array, the arena, each preceded by its length. A character takes
+ *one byte if every character of the dictionary fits in ISO-8859-1, and
+ *two bytes otherwise.
+ *
+ *Each slot of the table is two longs next to each other: a 64-bit
+ *fingerprint of a word, which is BloomFilter.mix() of its BloomFilter.hash(),
+ *and the offset of the word in the arena. A lookup hashes the characters,
+ *probes the slots linearly from the fingerprint, and compares the arena
+ *bytes only when the fingerprint matches. The table is at most half full,
+ *so a lookup usually costs one cache miss for the slot and one for the
+ *word.
+ *
+ *Since the fingerprints are the same hashes the candidates of a misspelled
+ *word are described by, mightContainHash() is answered by the table itself,
+ *and its only false positives are 64-bit collisions.
+ *****************************************************************************/
+class HashDictionary implements Dictionary {
+	private final long[] table; //Fingerprint and arena offset of each slot
+	private final int mask;     //The number of slots minus one
+	private final byte[] arena;
+	private final boolean wide; //True if characters take two bytes
+	private final int size;
+	private final int last;     //The offset of the highest word
+
+	/*************************************************************************
+	 *Builds the table from a list of words.
+	 *@param words the words, in any order. Duplicates are dropped.
+	 *************************************************************************/
+	HashDictionary(String[] words) {
+		String[] sorted = words.clone();
+
+		Arrays.sort(sorted);
+
+		int n = 0;
+		boolean wide = false;
+		long bytes = 0;
+
+		for (int i = 0; i < sorted.length; i++) {
+			if (n > 0 && sorted[i].equals(sorted[n - 1])) continue;
+			sorted[n++] = sorted[i];
+			for (int j = 0; j < sorted[i].length() && !wide; j++) {
+				if (sorted[i].charAt(j) > 0xFF) wide = true;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			bytes += 5 + (wide ? 2 : 1) * (long) sorted[i].length();
+		}
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many words for the arena");
+		}
+
+		int slots = Integer.highestOneBit(Math.max(2, n) * 2 - 1) * 2;
+		byte[] arena = new byte[(int) bytes];
+		int offset = 0;
+		int last = 0;
+
+		this.wide = wide;
+		this.size = n;
+		this.mask = slots - 1;
+		this.table = new long[2 * slots];
+		for (int i = 0; i < n; i++) {
+			String s = sorted[i];
+			int slot = (int) fingerprint(BloomFilter.hash(s)) & mask;
+
+			while (table[2 * slot] != 0) slot = (slot + 1) & mask;
+			table[2 * slot] = fingerprint(BloomFilter.hash(s));
+			table[2 * slot + 1] = offset;
+			last = offset;
+			offset = put(arena, offset, s);
+		}
+		this.arena = Arrays.copyOf(arena, offset);
+		this.last = last;
+	}
+
+	/*************************************************************************
+	 *Builds the table from the words of another dictionary.
+	 *@param dict the dictionary.
+	 *************************************************************************/
+	HashDictionary(Dictionary dict) {
+		this(toArray(dict));
+	}
+
+	private static String[] toArray(Dictionary dict) {
+		String[] words = new String[dict.size()];
+		Iterator<String> iter = dict.words();
+
+		for (int i = 0; i < words.length; i++) words[i] = iter.next();
+		return words;
+	}
+
+	/*************************************************************************
+	 *Turns a hash value into a fingerprint. 0 marks an empty slot, so it is
+	 *never a fingerprint.
+	 *************************************************************************/
+	private static long fingerprint(long hash) {
+		long f = BloomFilter.mix(hash);
+
+		return (f == 0) ? 1 : f;
+	}
+
+	/*************************************************************************
+	 *Writes a word into the arena: its length in groups of seven bits,
+	 *lowest first, followed by its characters.
+	 *@return the offset after the word.
+	 *************************************************************************/
+	private int put(byte[] arena, int offset, String s) {
+		int length = s.length();
+
+		while (length >= 0x80) {
+			arena[offset++] = (byte) (length | 0x80);
+			length >>>= 7;
+		}
+		arena[offset++] = (byte) length;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+
+			if (wide) arena[offset++] = (byte) (c >>> 8);
+			arena[offset++] = (byte) c;
+		}
+
+		return offset;
+	}
+
+	/*************************************************************************
+	 *Checks if the word at an offset in the arena has the first characters
+	 *of an array.
+	 *************************************************************************/
+	private boolean matches(int offset, char[] word, int length) {
+		int n = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = arena[offset++];
+			n |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		if (n != length) return false;
+
+		for (int i = 0; i < length; i++) {
+			int c = arena[offset++] & 0xFF;
+
+			if (wide) c = (c << 8) | (arena[offset++] & 0xFF);
+			if (c != word[i]) return false;
+		}
+
+		return true;
+	}
+
+	/*************************************************************************
+	 *Checks if the word at an offset in the arena is a string.
+	 *************************************************************************/
+	private boolean matches(int offset, String s) {
+		int n = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = arena[offset++];
+			n |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		if (n != s.length()) return false;
+
+		for (int i = 0; i < n; i++) {
+			int c = arena[offset++] & 0xFF;
+
+			if (wide) c = (c << 8) | (arena[offset++] & 0xFF);
+			if (c != s.charAt(i)) return false;
+		}
+
+		return true;
+	}
+
+	/*************************************************************************
+	 *Reads the word at an offset in the arena.
+	 *@param offset the offset of the word.
+	 *@param end receives the offset after the word, if not null.
+	 *@return the word.
+	 *************************************************************************/
+	private String word(int offset, int[] end) {
+		int n = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			b = arena[offset++];
+			n |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+
+		char[] c = new char[n];
+
+		for (int i = 0; i < n; i++) {
+			int x = arena[offset++] & 0xFF;
+
+			if (wide) x = (x << 8) | (arena[offset++] & 0xFF);
+			c[i] = (char) x;
+		}
+		if (end != null) end[0] = offset;
+
+		return new String(c);
+	}
+
+	public boolean contains(String s) {
+		long f = fingerprint(BloomFilter.hash(s));
+
+		for (int slot = (int) f & mask; table[2 * slot] != 0;
+			 slot = (slot + 1) & mask) {
+			if (table[2 * slot] == f && matches((int) table[2 * slot + 1], s)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public boolean contains(char[] word, int length) {
+		long f = fingerprint(BloomFilter.hash(word, length));
+
+		for (int slot = (int) f & mask; table[2 * slot] != 0;
+			 slot = (slot + 1) & mask) {
+			if (table[2 * slot] == f &&
+				matches((int) table[2 * slot + 1], word, length)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/*************************************************************************
+	 *Hash lookups do not gain from the order of the words, so each word is 
+	 *looked up on its own.
+	 *************************************************************************/
+	public void containsAll(String[] words, int n, boolean[] found) {
+		for (int i = 0; i < n; i++) found[i] = contains(words[i]);
+	}
+
+	public boolean mightContain(String s) {
+		return mightContainHash(BloomFilter.hash(s));
+	}
+
+	/*************************************************************************
+	 *Looks for the fingerprint of a hash value in the table, without
+	 *comparing any words.
+	 *************************************************************************/
+	public boolean mightContainHash(long hash) {
+		long f = fingerprint(hash);
+
+		for (int slot = (int) f & mask; table[2 * slot] != 0;
+			 slot = (slot + 1) & mask) {
+			if (table[2 * slot] == f) return true;
+		}
+
+		return false;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/*************************************************************************
+	 *The dictionary is read-only, so its version never changes.
+	 *************************************************************************/
+	public long version() {
+		return 0;
+	}
+
+	public String min() {
+		return (size == 0) ? null : word(0, null);
+	}
+
+	public String max() {
+		return (size == 0) ? null : word(last, null);
+	}
+
+	/*************************************************************************
+	 *Gets an iterator over the words in sorted order, read from the arena.
+	 *************************************************************************/
+	public Iterator<String> words() {
+		return new Iterator<String>() {
+			int[] end = new int[1];
+			int i = 0;
+
+			public boolean hasNext() {
+				return i < size;
+			}
+
+			public String next() {
+				if (i >= size) throw new NoSuchElementException();
+
+				String s = word(end[0], end);
+
+				i++;
+				return s;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/******************************************
+	 *Gets the number of slots in the table.
+	 *@return the number of slots.
+	 ******************************************/
+	public int slots() {
+		return mask + 1;
+	}
+
+	/*************************************************************************
+	 *Gets the number of bytes the words take in the arena.
+	 *@return the size of the arena.
+	 *************************************************************************/
+	public int arenaSize() {
+		return arena.length;
+	}
+
+	/*************************************************************************
+	 *Estimates the heap used by the table and the arena.
+	 *@return the approximate number of bytes used.
+	 *************************************************************************/
+	public long memoryUsage() {
+		return 8L * table.length + arena.length;
+	}
+}
@@ -0,0 +1,97 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/*****************************************************************************
+ *A histogram of latencies in nanoseconds, in the style of HdrHistogram.
+ *Each power of two is split into 16 linear buckets, so any recorded value 
+ *is known to within about 6 percent. The buckets are striped counters, 
+ *which makes recording cheap even when many threads record at once.
+ *****************************************************************************/
+class LatencyHistogram {
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final LongAdder[] buckets = new LongAdder[64 * SUB_BUCKETS];
+	private final LongAdder count = new LongAdder();
+
+	LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+	}
+
+	/*************************************************************************
+	 *Gets the bucket of a value: the position of its highest bit, followed 
+	 *by the next SUB_BITS bits below it.
+	 *************************************************************************/
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS) return (int) Math.max(value, 0);
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/*************************************************************************
+	 *Gets the greatest value that falls into a bucket.
+	 *************************************************************************/
+	private static long highestValue(int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BITS);
+
+		return (1L << exponent) + (sub + 1) * width - 1;
+	}
+
+	/************************************************
+	 *Records a latency.
+	 *@param nanos the latency in nanoseconds.
+	 *************************************************/
+	void record(long nanos) {
+		buckets[bucket(nanos)].increment();
+		count.increment();
+	}
+
+	/************************************************
+	 *Gets the number of latencies recorded.
+	 *@return the number of latencies.
+	 *************************************************/
+	long count() {
+		return count.sum();
+	}
+
+	/*************************************************************************
+	 *Gets the latency that the specified share of the recorded latencies 
+	 *are at or below.
+	 *@param quantile the share, between 0 and 1, such as 0.99.
+	 *@return the latency in nanoseconds, or 0 if nothing is recorded.
+	 *************************************************************************/
+	long percentile(double quantile) {
+		long[] counts = new long[buckets.length];
+		long total = 0;
+
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sum();
+			total += counts[i];
+		}
+		if (total == 0) return 0;
+
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0) return highestValue(i);
+		}
+
+		return highestValue(counts.length - 1);
+	}
+
+	/******************************************
+	 *Removes every recorded latency.
+	 ******************************************/
+	void reset() {
+		for (int i = 0; i < buckets.length; i++) buckets[i].reset();
+		count.reset();
+	}
+}
@@ -0,0 +1,321 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*****************************************************************************
+ *A read-only dictionary answered straight from a compiled snapshot file, 
+ *which is memory-mapped instead of parsed. Loading costs the same no matter 
+ *how many words there are, and processes on the same host share the 
+ *mapped pages through the page cache.
+ *
+ *The snapshot has the following layout, in big-endian order:
+ *- the magic number "NSPL" and the format version,
+ *- the number of words and the number of hash functions of the filter,
+ *- the number of bits in the filter, followed by the bits as longs,
+ *- the start of each word in the character area, plus an end offset,
+ *- the words in sorted order, as UTF-16 characters.
+ *****************************************************************************/
+class MappedDictionary implements Dictionary {
+	static final int MAGIC = 0x4E53504C;
+	static final int VERSION = 2;
+	private static final int HEADER = 24;
+
+	private final int size;
+	private final BloomFilter filter;
+	private final IntBuffer offsets;
+	private final CharBuffer chars;
+	private final long fileSize;
+
+	/*************************************************************************
+	 *Maps a compiled snapshot file into memory.
+	 *@param f the snapshot file.
+	 *@throws IOException if the file cannot be read or is not a snapshot of 
+	 *a supported version.
+	 *************************************************************************/
+	MappedDictionary(File f) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(f, "r");
+
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer buffer = 
+				channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			fileSize = channel.size();
+			if (fileSize < HEADER || buffer.getInt(0) != MAGIC) {
+				throw new IOException(f + " is not a dictionary snapshot");
+			}
+			if (buffer.getInt(4) != VERSION) {
+				throw new IOException("Unsupported dictionary snapshot version " 
+									  + buffer.getInt(4) + " in " + f);
+			}
+
+			size = buffer.getInt(8);
+
+			int numHashes = buffer.getInt(12);
+			int filterBytes = (int) (buffer.getLong(16) / 8);
+			int offsetBytes = (size + 1) * 4;
+
+			buffer.position(HEADER);
+			buffer.limit(HEADER + filterBytes);
+			filter = new BloomFilter(buffer.slice().asLongBuffer(), numHashes);
+			buffer.limit(buffer.capacity());
+			buffer.position(HEADER + filterBytes);
+			offsets = buffer.slice().asIntBuffer();
+			buffer.position(HEADER + filterBytes + offsetBytes);
+			chars = buffer.slice().asCharBuffer();
+		} finally {
+			//The mapping stays valid after the file is closed.
+			file.close();
+		}
+	}
+
+	/*************************************************************************
+	 *Checks if a file starts with the snapshot magic number.
+	 *@param f the file to be checked.
+	 *@return true if the file looks like a compiled snapshot.
+	 *************************************************************************/
+	static boolean isSnapshot(File f) {
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(f));
+
+			try {
+				return in.readInt() == MAGIC;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/*************************************************************************
+	 *Writes a dictionary to a snapshot file that can later be mapped.
+	 *@param dict the dictionary to be compiled.
+	 *@param f the file to be written.
+	 *@param falsePositiveRate the wanted false positive rate of the filter.
+	 *@throws IOException if the file cannot be written.
+	 *************************************************************************/
+	static void compile(Dictionary dict, File f, double falsePositiveRate) 
+		throws IOException {
+		int n = dict.size();
+		BloomFilter filter = new BloomFilter(n, falsePositiveRate);
+		int[] offsets = new int[n + 1];
+		StringBuilder sb = new StringBuilder();
+		Iterator<String> iter = dict.words();
+
+		for (int i = 0; i < n; i++) {
+			String s = iter.next();
+
+			filter.add(s);
+			offsets[i] = sb.length();
+			sb.append(s);
+		}
+		offsets[n] = sb.length();
+
+		DataOutputStream out = new DataOutputStream(
+			new BufferedOutputStream(new FileOutputStream(f), 1 << 16));
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(n);
+			out.writeInt(filter.numHashes());
+			out.writeLong(filter.numBits());
+			for (int i = 0; i < filter.bits().capacity(); i++) {
+				out.writeLong(filter.bits().get(i));
+			}
+			for (int i = 0; i <= n; i++) out.writeInt(offsets[i]);
+			out.writeChars(sb.toString());
+		} finally {
+			out.close();
+		}
+	}
+
+	/*************************************************************************
+	 *Compares a word with the word at the specified index, directly in the 
+	 *mapped buffer.
+	 *@return a negative number, zero or a positive number if the word is 
+	 *less than, equal to or greater than the word at the index.
+	 *************************************************************************/
+	private int compareTo(String s, int index) {
+		int from = offsets.get(index);
+		int to = offsets.get(index + 1);
+		int n = Math.min(s.length(), to - from);
+
+		for (int i = 0; i < n; i++) {
+			int d = s.charAt(i) - chars.get(from + i);
+
+			if (d != 0) return d;
+		}
+
+		return s.length() - (to - from);
+	}
+
+	/*************************************************************************
+	 *Compares the first characters of an array with the word at the 
+	 *specified index, directly in the mapped buffer.
+	 *************************************************************************/
+	private int compareTo(char[] word, int length, int index) {
+		int from = offsets.get(index);
+		int to = offsets.get(index + 1);
+		int n = Math.min(length, to - from);
+
+		for (int i = 0; i < n; i++) {
+			int d = word[i] - chars.get(from + i);
+
+			if (d != 0) return d;
+		}
+
+		return length - (to - from);
+	}
+
+	/*************************************************************************
+	 *Gets the word at the specified index in sorted order.
+	 *@param index the index of the word.
+	 *@return the word.
+	 *************************************************************************/
+	String word(int index) {
+		int from = offsets.get(index);
+		int to = offsets.get(index + 1);
+		char[] c = new char[to - from];
+
+		for (int i = 0; i < c.length; i++) c[i] = chars.get(from + i);
+
+		return new String(c);
+	}
+
+	public boolean contains(String s) {
+		int lo = 0;
+		int hi = size - 1;
+
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = compareTo(s, mid);
+
+			if (cmp > 0) lo = mid + 1;
+			else if (cmp < 0) hi = mid - 1;
+			else return true;
+		}
+
+		return false;
+	}
+
+	public boolean contains(char[] word, int length) {
+		int lo = 0;
+		int hi = size - 1;
+
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = compareTo(word, length, mid);
+
+			if (cmp > 0) lo = mid + 1;
+			else if (cmp < 0) hi = mid - 1;
+			else return true;
+		}
+
+		return false;
+	}
+
+	/*************************************************************************
+	 *Checks which of a number of sorted words are in the snapshot. Each 
+	 *word is searched for from where the word before it was found, first 
+	 *by galloping forward in growing steps and then by binary search 
+	 *between the last two steps, so words that are close together in the 
+	 *dictionary cost only a few comparisons each.
+	 *@param words the words, in sorted order. Duplicates are allowed.
+	 *@param n the number of words.
+	 *@param found receives true for each word that is in the snapshot.
+	 *************************************************************************/
+	public void containsAll(String[] words, int n, boolean[] found) {
+		int from = 0; //Every word before this index is less than the word
+
+		for (int i = 0; i < n; i++) {
+			String s = words[i];
+			int step = 1;
+			int hi = from;
+
+			while (hi < size && compareTo(s, hi) > 0) {
+				from = hi + 1;
+				hi += step;
+				step *= 2;
+			}
+			hi = Math.min(hi, size);
+
+			//The word is now between from and hi, inclusive.
+			while (from < hi) {
+				int mid = (from + hi) >>> 1;
+
+				if (compareTo(s, mid) > 0) from = mid + 1;
+				else hi = mid;
+			}
+			found[i] = from < size && compareTo(s, from) == 0;
+		}
+	}
+
+	public boolean mightContain(String s) {
+		return filter.mightContain(s);
+	}
+
+	public boolean mightContainHash(long hash) {
+		return filter.mightContainHash(hash);
+	}
+
+	/******************************************
+	 *Gets the filter stored in the snapshot.
+	 *@return the filter.
+	 ******************************************/
+	BloomFilter filter() {
+		return filter;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/*************************************************************************
+	 *The dictionary is read-only, so its version never changes.
+	 *************************************************************************/
+	public long version() {
+		return 0;
+	}
+
+	public String min() {
+		return word(0);
+	}
+
+	public String max() {
+		return word(size - 1);
+	}
+
+	/******************************************
+	 *Gets the size of the mapped snapshot file.
+	 *@return the size of the file in bytes.
+	 ******************************************/
+	public long fileSize() {
+		return fileSize;
+	}
+
+	public Iterator<String> words() {
+		return new Iterator<String>() {
+			int i = 0;
+
+			public boolean hasNext() {
+				return i < size;
+			}
+
+			public String next() {
+				if (i >= size) throw new NoSuchElementException();
+				return word(i++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -0,0 +1,298 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*****************************************************************************
+ *Counters and latencies collected by a spellchecker across requests.
+ *
+ *Every counter is a striped LongAdder, and the counters are only updated 
+ *once per request from the per-request stats, never once per candidate, 
+ *so collecting them costs next to nothing on the hot path. The metrics can 
+ *be registered as an MBean and logged periodically.
+ *****************************************************************************/
+class Metrics implements MetricsMBean {
+	final LongAdder spellChecks = new LongAdder();
+	final LongAdder lookups = new LongAdder();
+	final LongAdder truePositives = new LongAdder();
+	final LongAdder falsePositives = new LongAdder();
+	final LongAdder rejections = new LongAdder();
+	final LongAdder suggestionRequests = new LongAdder();
+	final LongAdder[] candidates = {
+		new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()
+	};
+	final LongAdder trieStates = new LongAdder();
+	final LongAdder deletionChecks = new LongAdder();
+	final LongAdder cacheHits = new LongAdder();
+	final LongAdder cacheMisses = new LongAdder();
+	final LongAdder truncatedSuggestions = new LongAdder();
+	final LongAdder compoundWords = new LongAdder();
+	final LongAdder reloads = new LongAdder();
+	final LongAdder reloadFailures = new LongAdder();
+	final LongAdder serverBatches = new LongAdder();
+	final LongAdder serverRejections = new LongAdder();
+	final LatencyHistogram latency = new LatencyHistogram();
+
+	private ScheduledExecutorService logger;
+
+	/*************************************************************************
+	 *Records the outcome of looking up a single word.
+	 *@param passed true if the word passed the dictionary's filter.
+	 *@param found true if the word was in the dictionary.
+	 *************************************************************************/
+	void recordCheck(boolean passed, boolean found) {
+		spellChecks.increment();
+		if (!passed) rejections.increment();
+		else {
+			lookups.increment();
+			if (found) truePositives.increment();
+			else falsePositives.increment();
+		}
+	}
+
+	/*************************************************************************
+	 *Records the outcome of looking up a number of words at once.
+	 *@param stats found, false positive and rejected words, as in
+	 *SpellChecker.Result.
+	 *************************************************************************/
+	void recordChecks(int[] stats) {
+		spellChecks.add(stats[0] + stats[1] + stats[2]);
+		lookups.add(stats[0] + stats[1]);
+		truePositives.add(stats[0]);
+		falsePositives.add(stats[1]);
+		rejections.add(stats[2]);
+	}
+
+	/*************************************************************************
+	 *Records a request for suggestions.
+	 *@param stats found, false positive and rejected candidates, as in
+	 *SpellChecker.Result.
+	 *@param nanos the time it took to find the suggestions.
+	 *************************************************************************/
+	void recordSuggestions(int[] stats, long nanos) {
+		suggestionRequests.increment();
+		lookups.add(stats[0] + stats[1]);
+		truePositives.add(stats[0]);
+		falsePositives.add(stats[1]);
+		rejections.add(stats[2]);
+		latency.record(nanos);
+	}
+
+	/*************************************************************************
+	 *Records a request for suggestions that was answered from the cache.
+	 *@param nanos the time it took to answer.
+	 *************************************************************************/
+	void recordCachedSuggestions(long nanos) {
+		suggestionRequests.increment();
+		cacheHits.increment();
+		latency.record(nanos);
+	}
+
+	/*************************************************************************
+	 *Registers the metrics with the platform MBean server.
+	 *@param name the name the metrics are registered under.
+	 *@return the object name of the MBean.
+	 *@throws JMException if the metrics cannot be registered.
+	 *************************************************************************/
+	ObjectName register(String name) throws JMException {
+		ObjectName objectName = 
+			new ObjectName("SpellChecker:type=Metrics,name=" + name);
+
+		ManagementFactory.getPlatformMBeanServer()
+			.registerMBean(this, objectName);
+		return objectName;
+	}
+
+	/*************************************************************************
+	 *Starts printing a snapshot of the metrics at a fixed rate, from a 
+	 *background thread that does not keep the process alive.
+	 *@param seconds the number of seconds between snapshots.
+	 *@param out the stream the snapshots are printed to.
+	 *************************************************************************/
+	synchronized void startLogging(long seconds, final PrintStream out) {
+		stopLogging();
+		logger = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "spellchecker-metrics");
+
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		logger.scheduleAtFixedRate(new Runnable() {
+				public void run() {
+					out.println(snapshot());
+				}
+			}, seconds, seconds, TimeUnit.SECONDS);
+	}
+
+	/******************************************
+	 *Stops printing snapshots of the metrics.
+	 ******************************************/
+	synchronized void stopLogging() {
+		if (logger != null) logger.shutdownNow();
+		logger = null;
+	}
+
+	/*************************************************************************
+	 *Describes the current metrics on a single line.
+	 *@return the description.
+	 *************************************************************************/
+	String snapshot() {
+		DecimalFormat f = new DecimalFormat("#0.0");
+
+		return "checks=" + getSpellChecks() + 
+			" lookups=" + getLookups() + 
+			" filterFalsePositiveRate=" + 
+			new DecimalFormat("#0.0000").format(getPrefilterFalsePositiveRate()) +
+			" suggestions=" + getSuggestionRequests() + 
+			" candidates=" + getTranspositionCandidates() + "/" + 
+			getSubstitutionCandidates() + "/" + getDeletionCandidates() + "/" + 
+			getInsertionCandidates() + 
+			" trieStates=" + getTrieStatesVisited() + 
+			" indexChecks=" + getDeletionIndexWordsChecked() + 
+			" cache=" + getCacheHits() + "/" + getCacheMisses() + 
+			" truncated=" + getTruncatedSuggestions() + 
+			" compounds=" + getCompoundWords() + 
+			" reloads=" + getReloads() + "/" + getReloadFailures() + 
+			" batches=" + getServerBatches() + 
+			" busy=" + getServerRejections() + 
+			" p50=" + f.format(getSuggestionLatencyP50Micros()) + "us" + 
+			" p99=" + f.format(getSuggestionLatencyP99Micros()) + "us" + 
+			" p999=" + f.format(getSuggestionLatencyP999Micros()) + "us";
+	}
+
+	public long getSpellChecks() {
+		return spellChecks.sum();
+	}
+
+	public long getLookups() {
+		return lookups.sum();
+	}
+
+	public long getPrefilterTruePositives() {
+		return truePositives.sum();
+	}
+
+	public long getPrefilterFalsePositives() {
+		return falsePositives.sum();
+	}
+
+	public long getPrefilterRejections() {
+		return rejections.sum();
+	}
+
+	/*************************************************************************
+	 *Gets the share of words not in the dictionary that passed its filter.
+	 *************************************************************************/
+	public double getPrefilterFalsePositiveRate() {
+		long fp = falsePositives.sum();
+		long negatives = fp + rejections.sum();
+
+		return (negatives == 0) ? 0 : (double) fp / negatives;
+	}
+
+	public long getSuggestionRequests() {
+		return suggestionRequests.sum();
+	}
+
+	public long getTranspositionCandidates() {
+		return candidates[CandidateGenerator.TRANSPOSITION].sum();
+	}
+
+	public long getSubstitutionCandidates() {
+		return candidates[CandidateGenerator.SUBSTITUTION].sum();
+	}
+
+	public long getDeletionCandidates() {
+		return candidates[CandidateGenerator.DELETION].sum();
+	}
+
+	public long getInsertionCandidates() {
+		return candidates[CandidateGenerator.INSERTION].sum();
+	}
+
+	public long getTrieStatesVisited() {
+		return trieStates.sum();
+	}
+
+	public long getDeletionIndexWordsChecked() {
+		return deletionChecks.sum();
+	}
+
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	/*************************************************************************
+	 *Gets the number of requests for suggestions whose budget ran out.
+	 *************************************************************************/
+	public long getTruncatedSuggestions() {
+		return truncatedSuggestions.sum();
+	}
+
+	/*************************************************************************
+	 *Gets the number of words that were accepted as compounds.
+	 *************************************************************************/
+	public long getCompoundWords() {
+		return compoundWords.sum();
+	}
+
+	public long getReloads() {
+		return reloads.sum();
+	}
+
+	public long getReloadFailures() {
+		return reloadFailures.sum();
+	}
+
+	public long getServerBatches() {
+		return serverBatches.sum();
+	}
+
+	/*************************************************************************
+	 *Gets the number of requests and connections the server turned away 
+	 *with BUSY.
+	 *************************************************************************/
+	public long getServerRejections() {
+		return serverRejections.sum();
+	}
+
+	public double getSuggestionLatencyP50Micros() {
+		return latency.percentile(0.5) / 1000.0;
+	}
+
+	public double getSuggestionLatencyP99Micros() {
+		return latency.percentile(0.99) / 1000.0;
+	}
+
+	public double getSuggestionLatencyP999Micros() {
+		return latency.percentile(0.999) / 1000.0;
+	}
+
+	/******************************************
+	 *Sets every counter back to zero.
+	 ******************************************/
+	public void reset() {
+		LongAdder[] all = {
+			spellChecks, lookups, truePositives, falsePositives, rejections, 
+			suggestionRequests, trieStates, deletionChecks, cacheHits, 
+			cacheMisses, truncatedSuggestions, compoundWords, reloads, 
+			reloadFailures, serverBatches, serverRejections
+		};
+
+		for (int i = 0; i < all.length; i++) all[i].reset();
+		for (int i = 0; i < candidates.length; i++) candidates[i].reset();
+		latency.reset();
+	}
+}
@@ -0,0 +1,30 @@
+/*****************************************************************************
+ *The management interface of the Metrics class, as seen over JMX.
+ *****************************************************************************/
+public interface MetricsMBean {
+	long getSpellChecks();
+	long getLookups();
+	long getPrefilterTruePositives();
+	long getPrefilterFalsePositives();
+	long getPrefilterRejections();
+	double getPrefilterFalsePositiveRate();
+	long getSuggestionRequests();
+	long getTranspositionCandidates();
+	long getSubstitutionCandidates();
+	long getDeletionCandidates();
+	long getInsertionCandidates();
+	long getTrieStatesVisited();
+	long getDeletionIndexWordsChecked();
+	long getCacheHits();
+	long getCacheMisses();
+	long getTruncatedSuggestions();
+	long getCompoundWords();
+	long getReloads();
+	long getReloadFailures();
+	long getServerBatches();
+	long getServerRejections();
+	double getSuggestionLatencyP50Micros();
+	double getSuggestionLatencyP99Micros();
+	double getSuggestionLatencyP999Micros();
+	void reset();
+}
@@ -0,0 +1,178 @@
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+
+/*****************************************************************************
+ *Speaks the pipe protocol of "ispell -a", so editors can stream text
+ *through a long-lived spellchecker.
+ *
+ *A version banner is written first. Then every line of input is checked
+ *word by word, where a word is a run of letters, and answered with one
+ *line for each word followed by an empty line:
+ *
+ *  *                              the word is correct
+ *  & word count offset: s1, s2    the word is misspelled, with suggestions
+ *  # word offset                  the word is misspelled, without any
+ *
+ *The protocol has no way to say that the budget ran out before all the 
+ *suggestions were found, since clients offer every entry after the colon 
+ *as a replacement, so the suggestions found so far are sent as they are.
+ *
+ *The offset counts characters from 0 at the start of the line as it was
+ *read, including any leading ^. A word that is not in the dictionary is
+ *also tried in lower case, so words at the start of a sentence are
+ *accepted.
+ *
+ *A line that starts with one of these characters is a command instead:
+ *
+ *  ^     the rest of the line is text, even if it starts with a command
+ *  *  @  accepts the word for the rest of the session
+ *  !  %  turns terse mode on or off. In terse mode correct words get no
+ *        answer line.
+ *
+ *The other commands of ispell are read and ignored. Answers are buffered
+ *and only flushed once a whole line has been answered, so a client that
+ *sends a line can always read its answer.
+ *
+ *The protocol is always spoken in UTF-8, whatever the encoding of the word
+ *list or of the platform. Under the POSIX locale the platform encoding is
+ *ASCII, which would split every word at its first non-ASCII letter.
+ *****************************************************************************/
+class PipeChecker {
+	static final String BANNER =
+		"@(#) International Ispell Version 3.1.20 " +
+		"(but really Norwegian SpellChecker r9k)";
+	static final Charset ENCODING = StandardCharsets.UTF_8;
+
+	private final SpellChecker checker;
+	private final HashSet<String> accepted = new HashSet<String>();
+	private boolean terse;
+
+	/*************************************************************************
+	 *Creates a pipe checker.
+	 *@param checker the spellchecker.
+	 *************************************************************************/
+	PipeChecker(SpellChecker checker) {
+		this.checker = checker;
+	}
+
+	/*************************************************************************
+	 *Answers lines until the input ends.
+	 *@param in the text and commands.
+	 *@param out where the answers are written.
+	 *@throws IOException if reading or writing fails.
+	 *************************************************************************/
+	void run(BufferedReader in, Writer out) throws IOException {
+		StringBuilder answer = new StringBuilder();
+		String line;
+
+		out.write(BANNER);
+		out.write('\n');
+		out.flush();
+
+		while ((line = in.readLine()) != null) {
+			answer.setLength(0);
+			if (command(line)) continue;
+			check(line, (line.startsWith("^")) ? 1 : 0, answer);
+			answer.append('\n');
+			out.append(answer);
+			out.flush();
+		}
+		out.flush();
+	}
+
+	/*************************************************************************
+	 *Carries out a command line.
+	 *@return true if the line was a command, false if it is text.
+	 *************************************************************************/
+	private boolean command(String line) {
+		if (line.isEmpty()) return false;
+
+		switch (line.charAt(0)) {
+		case '*':
+		case '@':
+			String word = line.substring(1).trim();
+
+			if (!word.isEmpty()) accepted.add(word);
+			return true;
+		case '!':
+			terse = true;
+			return true;
+		case '%':
+			terse = false;
+			return true;
+		case '#': //Saves the personal dictionary
+		case '&': //Adds a word in lower case
+		case '+': //Turns TeX mode on
+		case '-': //Turns TeX mode off
+		case '~': //Chooses a formatter
+		case '$': //Sets options
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/*************************************************************************
+	 *Checks the words of a line of text.
+	 *@param line the line.
+	 *@param from where the text starts.
+	 *@param answer receives the answer lines.
+	 *************************************************************************/
+	private void check(String line, int from, StringBuilder answer) {
+		int i = from;
+
+		while (i < line.length()) {
+			if (!Character.isLetter(line.charAt(i))) {
+				i++;
+				continue;
+			}
+
+			int start = i;
+
+			while (i < line.length() && Character.isLetter(line.charAt(i))) {
+				i++;
+			}
+
+			String word = line.substring(start, i);
+
+			if (isCorrect(word)) {
+				if (!terse) answer.append("*\n");
+				continue;
+			}
+
+			List<String> hits = 
+				checker.suggest(word.toLowerCase()).suggestions();
+
+			if (hits.isEmpty()) {
+				answer.append("# ").append(word).append(' ').append(start)
+					.append('\n');
+				continue;
+			}
+
+			answer.append("& ").append(word).append(' ').append(hits.size())
+				.append(' ').append(start).append(':');
+			for (int j = 0; j < hits.size(); j++) {
+				answer.append((j == 0) ? " " : ", ").append(hits.get(j));
+			}
+			answer.append('\n');
+		}
+	}
+
+	/*************************************************************************
+	 *Checks a word against the dictionary and the accepted words, as it is
+	 *and in lower case.
+	 *************************************************************************/
+	private boolean isCorrect(String word) {
+		if (accepted.contains(word) || checker.isSpelledCorrectly(word)) {
+			return true;
+		}
+
+		String lower = word.toLowerCase();
+
+		return !lower.equals(word) &&
+			(accepted.contains(lower) || checker.isSpelledCorrectly(lower));
+	}
+}
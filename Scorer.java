@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/*****************************************************************************
+ *Ranks suggestions for a misspelled word by how likely they are to be the
+ *word that was meant.
+ *
+ *A suggestion scores the logarithm of its frequency minus the cost of the
+ *edit that made it. Swapping two neighbouring characters and hitting a
+ *key next to the right one on a Norwegian keyboard are the cheapest edits,
+ *a missing or an extra character costs more, and any other substitution
+ *costs the most.
+ *
+ *Since the frequency is bounded, so is the score of every edit of a kind.
+ *CandidateGenerator uses these bounds to skip the kinds of edits that
+ *cannot beat the suggestions it has already found.
+ *****************************************************************************/
+class Scorer {
+	private static final double[] COST = {
+		1.0, //TRANSPOSITION
+		1.0, //SUBSTITUTION of a neighbouring key, see substitutionCost()
+		1.5, //DELETION
+		1.5  //INSERTION
+	};
+	private static final double FAR_SUBSTITUTION_COST = 2.0;
+	private static final String[] KEYBOARD = {
+		"qwertyuiop\u00e5",
+		"asdfghjkl\u00f8\u00e6",
+		"zxcvbnm"
+	};
+	private static final byte[] ROW = new byte[256];
+	private static final byte[] COLUMN = new byte[256];
+
+	static {
+		Arrays.fill(ROW, (byte) -1);
+		for (int r = 0; r < KEYBOARD.length; r++) {
+			for (int c = 0; c < KEYBOARD[r].length(); c++) {
+				ROW[KEYBOARD[r].charAt(c)] = (byte) r;
+				COLUMN[KEYBOARD[r].charAt(c)] = (byte) c;
+			}
+		}
+	}
+
+	private final Map<String, Integer> frequencies;
+	private final double maxFrequency; //The greatest frequency score
+
+	/*************************************************************************
+	 *The best suggestions found so far, in a heap of a fixed size whose
+	 *root is the worst of them.
+	 *************************************************************************/
+	static class TopK {
+		private final String[] words;
+		private final double[] scores;
+		private int size;
+
+		TopK(int k) {
+			words = new String[k];
+			scores = new double[k];
+		}
+
+		/*********************************************************************
+		 *Keeps a suggestion if it is better than the worst one kept, or
+		 *there is still room. A suggestion that is already kept is ignored.
+		 *********************************************************************/
+		void offer(String word, double score) {
+			if (size == words.length && score <= scores[0]) return;
+			for (int i = 0; i < size; i++) {
+				if (words[i].equals(word)) return;
+			}
+
+			if (size < words.length) {
+				int i = size++;
+
+				//Sifts the new suggestion up towards the root.
+				while (i > 0 && scores[(i - 1) / 2] > score) {
+					words[i] = words[(i - 1) / 2];
+					scores[i] = scores[(i - 1) / 2];
+					i = (i - 1) / 2;
+				}
+				words[i] = word;
+				scores[i] = score;
+			} else siftDown(word, score);
+		}
+
+		/*********************************************************************
+		 *Replaces the worst suggestion and sifts the new one down.
+		 *********************************************************************/
+		private void siftDown(String word, double score) {
+			int i = 0;
+
+			while (2 * i + 1 < size) {
+				int child = 2 * i + 1;
+
+				if (child + 1 < size && scores[child + 1] < scores[child]) {
+					child++;
+				}
+				if (scores[child] >= score) break;
+				words[i] = words[child];
+				scores[i] = scores[child];
+				i = child;
+			}
+			words[i] = word;
+			scores[i] = score;
+		}
+
+		/*********************************************************************
+		 *Checks if no suggestion with a score can be kept.
+		 *@param score the best score a suggestion could get.
+		 *********************************************************************/
+		boolean cannotBeat(double score) {
+			return size == words.length && score <= scores[0];
+		}
+
+		/*********************************************************************
+		 *Gets the suggestions kept, best first.
+		 *@return the suggestions.
+		 *********************************************************************/
+		List<String> words() {
+			Integer[] order = new Integer[size];
+
+			for (int i = 0; i < size; i++) order[i] = i;
+			Arrays.sort(order, new Comparator<Integer>() {
+					public int compare(Integer a, Integer b) {
+						int cmp = Double.compare(scores[b], scores[a]);
+
+						return (cmp != 0) ? cmp : words[a].compareTo(words[b]);
+					}
+				});
+
+			List<String> list = new ArrayList<String>(size);
+
+			for (int i = 0; i < size; i++) list.add(words[order[i]]);
+			return list;
+		}
+	}
+
+	/*************************************************************************
+	 *Creates a scorer.
+	 *@param frequencies the frequency of each word, or null to rank by the
+	 *edits alone. Words that are missing have the frequency 0.
+	 *************************************************************************/
+	Scorer(Map<String, Integer> frequencies) {
+		this.frequencies = frequencies;
+
+		int max = 0;
+
+		if (frequencies != null) {
+			for (int f : frequencies.values()) max = Math.max(max, f);
+		}
+		maxFrequency = Math.log1p(max);
+	}
+
+	/*************************************************************************
+	 *Scores a suggestion by its frequency and the edit that made it.
+	 *@param word the suggestion.
+	 *@param kind the kind of edit, as in CandidateGenerator.
+	 *@param from the character that was replaced, for substitutions.
+	 *@param to the character it was replaced with, for substitutions.
+	 *@return the score. Higher is better.
+	 *************************************************************************/
+	double score(String word, int kind, char from, char to) {
+		double cost = (kind == CandidateGenerator.SUBSTITUTION) ?
+			substitutionCost(from, to) : COST[kind];
+
+		return frequency(word) - cost;
+	}
+
+	/*************************************************************************
+	 *Scores a suggestion by its frequency and its edit distance, for
+	 *strategies that do not know which edits made it.
+	 *@param word the suggestion.
+	 *@param distance the number of edits.
+	 *@return the score. Higher is better.
+	 *************************************************************************/
+	double score(String word, int distance) {
+		return frequency(word) - COST[CandidateGenerator.DELETION] * distance;
+	}
+
+	/*************************************************************************
+	 *Gets the best score that an edit of a kind can get.
+	 *@param kind the kind of edit, as in CandidateGenerator.
+	 *@return the bound.
+	 *************************************************************************/
+	double bound(int kind) {
+		return maxFrequency - COST[kind];
+	}
+
+	/*************************************************************************
+	 *Keeps the best suggestions found by a strategy that does not rank them.
+	 *@param s the misspelled word.
+	 *@param hits the suggestions.
+	 *@param k the number of suggestions to keep.
+	 *@param maxDistance the greatest edit distance of the suggestions.
+	 *@return the best suggestions, best first.
+	 *************************************************************************/
+	List<String> rank(String s, List<String> hits, int k, int maxDistance) {
+		TopK top = new TopK(k);
+
+		for (String hit : hits) {
+			top.offer(hit, score(hit, DeletionIndex.distance(s, hit, maxDistance)));
+		}
+
+		return top.words();
+	}
+
+	/*************************************************************************
+	 *Gets the frequency score of a word, the logarithm of its frequency.
+	 *************************************************************************/
+	private double frequency(String word) {
+		if (frequencies == null) return 0;
+
+		Integer f = frequencies.get(word);
+
+		return (f == null) ? 0 : Math.log1p(f);
+	}
+
+	/*************************************************************************
+	 *Gets the cost of substituting a character, which is lower if the keys
+	 *are next to each other on the keyboard.
+	 *************************************************************************/
+	static double substitutionCost(char from, char to) {
+		return adjacent(from, to) ? COST[CandidateGenerator.SUBSTITUTION] :
+			FAR_SUBSTITUTION_COST;
+	}
+
+	/*************************************************************************
+	 *Checks if two keys are next to each other on a Norwegian keyboard, in
+	 *the same row or diagonally in the rows above and below.
+	 *************************************************************************/
+	static boolean adjacent(char a, char b) {
+		if (a >= 256 || b >= 256 || ROW[a] < 0 || ROW[b] < 0) return false;
+
+		int rows = ROW[b] - ROW[a];
+		int columns = COLUMN[b] - COLUMN[a];
+
+		if (rows == 0) return Math.abs(columns) == 1;
+		//Each row is shifted half a key to the right of the row above.
+		if (rows == 1) return columns == 0 || columns == -1;
+		if (rows == -1) return columns == 0 || columns == 1;
+		return false;
+	}
+}
@@ -1,55 +1,597 @@
 import java.io.*;
+import java.nio.charset.Charset;
 import java.math.*;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.text.DecimalFormat;
 
 /********************************************************************************
  *A class used for spellchecking. This instance is customized for (a subset of) 
  *the Norwegian language, 
  *but the class can theoretically be used with any written language. 
- *Its dictionary has the structure of a binary search tree with a hash table. 
+ *Its dictionary has the structure of a binary search tree with a Bloom filter. 
+ *
+ *check() is the API for embedding the spellchecker: it prints nothing and 
+ *returns a Result, and it can be called from several threads at once, also 
+ *while words are being added or removed. Spellcheckers are made with a 
+ *Builder. The methods that print are only used by the interactive program 
+ *in main().
+ *
+ *Words that are not in the dictionary are accepted if they are compounds 
+ *of dictionary words, as Norwegian words often are. See CompoundChecker.
+ *
+ *The dictionary is never changed once it is in use. It is held in a 
+ *Snapshot together with everything derived from it, and every call takes 
+ *the current snapshot once, without locking. Adding or removing words, or 
+ *reloading the word list, builds a new dictionary and swaps in a new 
+ *snapshot, while calls that already started finish with the old one.
  *******************************************************************************/
 class SpellChecker {
 
-    private File f; 
-    private BST dict = new BST(); //The dictionary
+	/*************************************************************************
+	 *The ways of finding suggestions for a misspelled word.
+	 *************************************************************************/
+	enum Strategy {
+		EDITS,    //Generates every string one edit away and looks each one up
+		TRIE,     //Walks a word graph of the dictionary within an edit distance
+		DELETIONS //Looks up the deletions of the word in a precomputed index
+	}
+
+	/*************************************************************************
+	 *The ways of storing a dictionary read from a word list.
+	 *************************************************************************/
+	enum Store {
+		TREE,  //A binary search tree with a filter, the only one that changes
+		GRAPH, //A minimized word graph, see the DAWG class
+		HASH   //A hash table of packed words, see the HashDictionary class
+	}
+
+	/*************************************************************************
+	 *The outcome of spellchecking a word: whether it is in the dictionary, 
+	 *and if not, the suggestions found for it and what was counted while 
+	 *finding them. The suggestions may be incomplete if the budget for 
+	 *finding them ran out.
+	 *************************************************************************/
+	static final class Result {
+		private final String word;
+		private final boolean correct;
+		private final List<String> suggestions;
+		private final int[] stats;
+		private final long nanos;
+		private final boolean truncated;
+		private final List<String> parts;
+
+		Result(String word, boolean correct, List<String> suggestions, 
+			   int[] stats, long nanos, boolean truncated, List<String> parts) {
+			this.word = word;
+			this.correct = correct;
+			this.suggestions = Collections.unmodifiableList(suggestions);
+			this.stats = stats;
+			this.nanos = nanos;
+			this.truncated = truncated;
+			this.parts = (parts == null) ? null : 
+				Collections.unmodifiableList(parts);
+		}
+
+		String word() {
+			return word;
+		}
+
+		boolean isCorrect() {
+			return correct;
+		}
+
+		/*********************************************************************
+		 *Gets the suggestions, best first. Empty if the word is correct.
+		 *@return the suggestions, which cannot be changed.
+		 *********************************************************************/
+		List<String> suggestions() {
+			return suggestions;
+		}
+
+		/*********************************************************************
+		 *Gets the number of candidates that were found in the dictionary.
+		 *********************************************************************/
+		int found() {
+			return stats[0];
+		}
+
+		/*********************************************************************
+		 *Gets the number of candidates that passed the filter of the 
+		 *dictionary without being in it.
+		 *********************************************************************/
+		int falsePositives() {
+			return stats[1];
+		}
+
+		/*********************************************************************
+		 *Gets the number of candidates that were rejected by the filter.
+		 *********************************************************************/
+		int rejected() {
+			return stats[2];
+		}
+
+		/*********************************************************************
+		 *Gets the time it took to check the word, in nanoseconds.
+		 *********************************************************************/
+		long nanos() {
+			return nanos;
+		}
+
+		/*********************************************************************
+		 *Checks if the budget ran out before every candidate was looked up, 
+		 *so that better suggestions may have been missed.
+		 *********************************************************************/
+		boolean isTruncated() {
+			return truncated;
+		}
+
+		/*********************************************************************
+		 *Checks if the word is not in the dictionary, but was accepted as a 
+		 *compound of words that are.
+		 *********************************************************************/
+		boolean isCompound() {
+			return parts != null;
+		}
+
+		/*********************************************************************
+		 *Gets the parts of a word that was accepted as a compound, as in 
+		 *CompoundChecker.segment().
+		 *@return the parts, or null if the word is not a compound.
+		 *********************************************************************/
+		List<String> parts() {
+			return parts;
+		}
+
+		public String toString() {
+			return word + (correct ? ": correct" : ": " + suggestions + 
+						   (truncated ? " (truncated)" : ""));
+		}
+	}
+
+	/*************************************************************************
+	 *Makes spellcheckers. Everything but the dictionary is optional.
+	 *************************************************************************/
+	static class Builder {
+		private Dictionary dict;
+		private File file;
+		private Store store = Store.TREE;
+		private Strategy strategy = Strategy.EDITS;
+		private int maxDistance = 1;
+		private int cacheSize = 10000;
+		private char[] alphabet;
+		private Charset charset;
+		private File frequencies;
+		private int ranked;
+		private long budgetNanos;
+		private int budgetCandidates;
+		private boolean compounds = true;
+
+		/*********************************************************************
+		 *Uses a dictionary that has already been built.
+		 *********************************************************************/
+		Builder dictionary(Dictionary dict) {
+			this.dict = dict;
+			this.file = null;
+			return this;
+		}
+
+		/*********************************************************************
+		 *Reads the dictionary from a word list or a compiled snapshot.
+		 *********************************************************************/
+		Builder dictionary(String filename) {
+			this.file = new File(filename);
+			this.dict = null;
+			return this;
+		}
+
+		/*********************************************************************
+		 *Stores a word list read from a file as a read-only word graph 
+		 *instead of a binary search tree.
+		 *********************************************************************/
+		Builder compact(boolean compact) {
+			this.store = compact ? Store.GRAPH : Store.TREE;
+			return this;
+		}
+
+		/*********************************************************************
+		 *Chooses how a word list read from a file is stored.
+		 *********************************************************************/
+		Builder store(Store store) {
+			this.store = store;
+			return this;
+		}
+
+		/*********************************************************************
+		 *See SpellChecker.setStrategy().
+		 *********************************************************************/
+		Builder strategy(Strategy strategy, int maxDistance) {
+			this.strategy = strategy;
+			this.maxDistance = maxDistance;
+			return this;
+		}
+
+		/*********************************************************************
+		 *See SpellChecker.setCacheSize().
+		 *********************************************************************/
+		Builder cacheSize(int size) {
+			this.cacheSize = size;
+			return this;
+		}
+
+		/*********************************************************************
+		 *Sets the letters that are inserted and substituted when looking 
+		 *for suggestions. Defaults to the Norwegian alphabet.
+		 *********************************************************************/
+		Builder alphabet(String letters) {
+			this.alphabet = letters.toCharArray();
+			return this;
+		}
+
+		/*********************************************************************
+		 *Sets the encoding of the word list and the frequency file. By 
+		 *default it is detected, see the WordListLoader class.
+		 *********************************************************************/
+		Builder charset(Charset charset) {
+			this.charset = charset;
+			return this;
+		}
+
+		/*********************************************************************
+		 *Reads the frequencies used to rank completions and suggestions 
+		 *from a file with a word and its count on every line. See 
+		 *complete() and setRanking().
+		 *********************************************************************/
+		Builder frequencies(String filename) {
+			this.frequencies = new File(filename);
+			return this;
+		}
+
+		/*********************************************************************
+		 *See SpellChecker.setRanking().
+		 *********************************************************************/
+		Builder ranked(int k) {
+			this.ranked = k;
+			return this;
+		}
+
+		/*********************************************************************
+		 *Sets whether compounds of dictionary words are accepted. They are 
+		 *by default.
+		 *********************************************************************/
+		Builder compounds(boolean accept) {
+			this.compounds = accept;
+			return this;
+		}
+
+		/*********************************************************************
+		 *Sets the budget for finding suggestions. See setBudget().
+		 *********************************************************************/
+		Builder budget(long nanos, int candidates) {
+			this.budgetNanos = nanos;
+			this.budgetCandidates = candidates;
+			return this;
+		}
+
+		/*********************************************************************
+		 *Reads the dictionary if needed, and makes the spellchecker.
+		 *@return the spellchecker.
+		 *@throws IOException if the dictionary could not be read.
+		 *@throws IllegalStateException if no dictionary was given.
+		 *********************************************************************/
+		SpellChecker build() throws IOException {
+			Dictionary d = dict;
+			WordListLoader loader = null;
+
+			if (d == null) {
+				if (file == null) {
+					throw new IllegalStateException("No dictionary was given");
+				}
+				loader = new WordListLoader(charset);
+				d = load(file, store, loader);
+			}
+
+			SpellChecker checker = new SpellChecker(d);
+
+			checker.loader = loader;
+			checker.store = (dict == null) ? store : storeOf(d);
+			checker.charset = charset;
+			checker.source = file;
+			if (alphabet != null) checker.alphabet = alphabet.clone();
+			if (frequencies != null) {
+				checker.setFrequencies(Completer.readFrequencies(
+					frequencies, (charset != null) ? charset : 
+					WordListLoader.detect(frequencies)));
+			}
+			checker.setCacheSize(cacheSize);
+			checker.setRanking(ranked);
+			checker.setBudget(budgetNanos, budgetCandidates);
+			checker.setCompounds(compounds);
+			checker.setStrategy(strategy, maxDistance);
+			return checker;
+		}
+	}
+
+    //How long words added or removed one at a time are gathered before 
+    //they are applied together.
+    static final long UPDATE_MILLIS = 100;
+    private final AtomicReference<Snapshot> current; //The dictionary in use
+    private final Object updating = new Object(); //Held while swapping
+    private long snapshots; //The number of snapshots made, while updating
+    private Store store; //How new dictionaries are stored
+    private Charset charset; //The encoding of the word list, or null
+    private File source; //The word list, if the dictionary was read from one
+    private ScheduledExecutorService background; //Reloads and updates
+    private final Object pending = new Object(); //Held while words are queued
+    private HashSet<String> pendingAdded = new HashSet<String>();
+    private HashSet<String> pendingRemoved = new HashSet<String>();
+    private boolean flushing; //Whether the queued words will be applied
+    private volatile Strategy strategy = Strategy.EDITS;
+    private volatile int maxDistance = 1;
+    private volatile SuggestionCache cache = new SuggestionCache(10000);
+    private volatile Map<String, Integer> frequencies; //For completions
+    private volatile Scorer scorer = new Scorer(null);
+    private volatile int ranked; //The number of suggestions kept, 0 for all
+    private volatile long budgetNanos; //Time per check, 0 for no limit
+    private volatile int budgetCandidates; //Candidates per word, 0 for all
+    private volatile boolean compounds = true; //Whether compounds are words
+    private WordListLoader loader; //How the word list was read, if it was
+    private final Metrics metrics = new Metrics();
+    //Looks up misspelling candidates. Generators keep state between calls, 
+    //so every thread gets its own, made again when the dictionary changes.
+    private final ThreadLocal<CandidateGenerator> generators = 
+		new ThreadLocal<CandidateGenerator>();
     char[] alphabet = 
-		"abcdefghijklmnopqrstuvwxyz".toCharArray(); //The Norwegian alphabet
+		"abcdefghijklmnopqrstuvwxyz\u00e6\u00f8\u00e5".toCharArray(); //The Norwegian alphabet
 
 	
 	/****************************************************************************
-	 *Builds the dictionary and prints out various statistics about it.
+	 *A dictionary that is no longer changed, and what is derived from it: 
+	 *the compound checker, and the word graph, deletion index and 
+	 *completer, which are built the first time they are needed.
+	 ***************************************************************************/
+	private final class Snapshot {
+		final Dictionary dict;
+		final long version; //Tells the snapshots of this spellchecker apart
+		final CompoundChecker compounds;
+		private volatile DAWG trie;
+		private volatile DeletionIndex deletions;
+		private volatile Completer completer;
+
+		Snapshot(Dictionary dict, long version) {
+			this.dict = dict;
+			this.version = version;
+			this.compounds = new CompoundChecker(dict);
+		}
+
+		/************************************************************
+		 *Gets the dictionary as a word graph, building one from its 
+		 *words the first time unless it already is one.
+		 ************************************************************/
+		DAWG trie() {
+			DAWG t = trie;
+
+			if (t != null) return t;
+			synchronized (this) {
+				if (trie != null) return trie;
+				if (dict instanceof DAWG) trie = (DAWG) dict;
+				else trie = new DAWG(toArray(dict));
+				return trie;
+			}
+		}
+
+		/************************************************************
+		 *Gets a deletion index that answers at least a distance, 
+		 *building one if needed.
+		 ************************************************************/
+		DeletionIndex deletions(int maxDistance) {
+			DeletionIndex d = deletions;
+
+			if (d != null && d.maxDistance() >= maxDistance) return d;
+			synchronized (this) {
+				if (deletions == null || deletions.maxDistance() < maxDistance) {
+					deletions = new DeletionIndex(dict, maxDistance);
+				}
+				return deletions;
+			}
+		}
+
+		/************************************************************
+		 *Gets the completer, building one if needed.
+		 ************************************************************/
+		Completer completer() {
+			Completer c = completer;
+
+			if (c != null) return c;
+			synchronized (this) {
+				if (completer == null) {
+					completer = new Completer(dict, frequencies);
+				}
+				return completer;
+			}
+		}
+
+		/************************************************************
+		 *Drops the completer, so that it is built again with new 
+		 *frequencies.
+		 ************************************************************/
+		synchronized void resetCompleter() {
+			completer = null;
+		}
+	}
+
+	/****************************************************************************
+	 *Creates a spellchecker for a dictionary, without printing anything.
+	 *@param dict the dictionary. It must not be changed afterwards, except 
+	 *through the spellchecker.
+	 ***************************************************************************/
+	SpellChecker(Dictionary dict) {
+		this.current = new AtomicReference<Snapshot>(new Snapshot(dict, 0));
+		this.store = storeOf(dict);
+	}
+
+	/****************************************************************************
+	 *Builds the dictionary as a binary search tree.
+	 *@param filename the filename of the file containing the words that will 
+	 *compose the dictionary.
+	 *@throws IOException if the file could not be read.
+	 ***************************************************************************/
+    SpellChecker(String filename) throws IOException {
+		this(filename, false);
+	}
+
+	/****************************************************************************
+	 *Builds the dictionary.
 	 *@param filename the filename of the file containing the words that will 
 	 *compose the dictionary.
+	 *@param compact true to store the dictionary as a read-only word graph 
+	 *instead of a binary search tree.
+	 *@throws IOException if the file could not be read.
+	 ***************************************************************************/
+    SpellChecker(String filename, boolean compact) throws IOException {
+		this(load(new File(filename), compact ? Store.GRAPH : Store.TREE, 
+				  new WordListLoader(null)));
+		source = new File(filename);
+	}
+
+	/****************************************************************************
+	 *Builds a dictionary from a word list, or maps it from a snapshot.
+	 *@param f the word list or snapshot.
+	 *@param store how a word list is stored.
+	 *@param loader reads the word list.
+	 *@return the dictionary.
+	 *@throws IOException if the file could not be read.
 	 ***************************************************************************/
-    SpellChecker(String filename) {
-		f = new File(filename);
+	static Dictionary load(File f, Store store, WordListLoader loader) 
+		throws IOException {
+		if (MappedDictionary.isSnapshot(f)) return new MappedDictionary(f);
+
+		Dictionary dict = build(loader.load(f), store);
+
+		if (dict instanceof BST) {
+			BST tree = (BST) dict;
+
+			tree.remove("familie");
+			tree.add("familie");
+		}
+		return dict;
+	}
+
+	/****************************************************************************
+	 *Builds a dictionary from words.
+	 *@param words the words, in any order.
+	 *@param store how the words are stored.
+	 *@return the dictionary.
+	 ***************************************************************************/
+	static Dictionary build(String[] words, Store store) {
+		if (store == Store.GRAPH) return new DAWG(words);
+		if (store == Store.HASH) return new HashDictionary(words);
+
+		BST tree = new BST();
+
+		tree.addAll(words);
+		return tree;
+	}
+
+	/****************************************************************************
+	 *Tells how a dictionary is stored. A mapped snapshot cannot be made 
+	 *from words in memory, so new dictionaries made from it are trees.
+	 ***************************************************************************/
+	static Store storeOf(Dictionary dict) {
+		if (dict instanceof DAWG) return Store.GRAPH;
+		if (dict instanceof HashDictionary) return Store.HASH;
+		return Store.TREE;
+	}
+
+	/****************************************************************************
+	 *Gets the words of a dictionary in sorted order.
+	 ***************************************************************************/
+	private static String[] toArray(Dictionary dict) {
+		String[] words = new String[dict.size()];
+		Iterator<String> iter = dict.words();
+
+		for (int i = 0; i < words.length; i++) words[i] = iter.next();
+		return words;
+	}
+
+	/****************************************************************************
+	 *Writes the dictionary to a snapshot file, which can be given to the 
+	 *constructor instead of a word list to skip parsing and building.
+	 *@param filename the filename of the snapshot file.
+	 ***************************************************************************/
+	public void compile(String filename) {
+		Dictionary dict = current.get().dict;
 
 		try {
-			Scanner s = new Scanner(f);
-			String word = "";
-
-			//Reads a word and adds it and its hash value to the dictionary, 
-			//until the end of the file is reached.
-			while(s.hasNext())
-				{
-					word = s.next();
-					dict.add(word);
-					dict.hashValues[dict.hash(word)] = true;
-				}
-		} catch (Exception e) {
+			long start = System.currentTimeMillis();
+
+			MappedDictionary.compile(dict, new File(filename), 
+									 BloomFilter.DEFAULT_FALSE_POSITIVE_RATE);
+			System.out.println("Wrote " + dict.size() + " words to " + 
+							   filename + " in " + 
+							   ((System.currentTimeMillis() - start) / 1000F) +
+							   " seconds");
+		} catch (IOException e) {
 			System.out.println("Oops. Something went wrong\n" + e.getMessage());
 		}
-	
-		dict.remove("familie");
-		dict.add("familie");
+	}
+
+	/****************************************************************************
+	 *Prints out various statistics about the dictionary, and about the 
+	 *deletion index if Strategy.DELETIONS is used. Nothing is computed for 
+	 *them until this is called.
+	 ***************************************************************************/
+	public void printStatistics() {
+		Snapshot snapshot = current.get();
+		Dictionary dict = snapshot.dict;
+
+		if (loader != null && loader.charset() != null) {
+			System.out.println("Read " + (loader.bytes() / 1024) + " KiB of " + 
+							   loader.charset() + " in " + 
+							   (loader.nanos() / 1000000 / 1000F) + 
+							   " seconds (" + (new DecimalFormat("#0.0")).
+							   format(loader.throughput()) + " MB/s)");
+		}
+		if (dict instanceof BST) printStatistics((BST) dict);
+		else if (dict instanceof DAWG) printStatistics((DAWG) dict);
+		else if (dict instanceof HashDictionary) {
+			printStatistics((HashDictionary) dict);
+		}
+		else if (dict instanceof MappedDictionary) {
+			printStatistics((MappedDictionary) dict);
+		}
+		if (strategy == Strategy.DELETIONS) {
+			printStatistics(snapshot.deletions(maxDistance));
+		}
+	}
+
+	/****************************************************************************
+	 *Prints out various statistics about a dictionary stored as a tree.
+	 *@param tree the dictionary.
+	 ***************************************************************************/
+	private void printStatistics(BST tree) {
+		BST.Statistics stats = tree.statistics();
 
-		System.out.println("Depth of the tree: " + dict.depth());
+		System.out.println("Words in dictionary: " + tree.size());
+		System.out.println("Depth of the tree: " + stats.depth);
 		System.out.println("Nodes per depth: ");
 	
-		int[] DOAN = dict.depthOfAllNodes();
+		int[] DOAN = stats.nodesPerDepth;
 
 		for (int i = 0; i < DOAN.length; i++) {
 			System.out.println("- Depth of " + (i + 1) + ": " + DOAN[i] + 
@@ -59,243 +601,946 @@ class SpellChecker {
 		//Prints the average depth of the dictionary with two decimal places.
 		System.out.println("Average depth of nodes: " + 
 						   (new DecimalFormat("#0.00")).
-						   format(dict.averageDepth())); 
-		System.out.println("First word in dictionary: " + dict.min());
-		System.out.println("Last word in dictionary: " + dict.max());
-		System.out.println("Hash values generated: " + 
-						   dict.numberOfHashValues());
+						   format(stats.averageDepth)); 
+		System.out.println("First word in dictionary: " + tree.min());
+		System.out.println("Last word in dictionary: " + tree.max());
+		printStatistics(tree.filter());
+    }
 
-		int[] HVFR = dict.hashValuesFillRate(30);
-	
-		System.out.println("Fill rate of hash table at intervals of 30: ");
+	/****************************************************************************
+	 *Prints out the size and the false positive rate of a tree's filter.
+	 *@param filter the filter.
+	 ***************************************************************************/
+	private void printStatistics(CountingBloomFilter filter) {
+		System.out.println("Counters in filter: " + filter.numCounters() + 
+						   " (" + filter.usedCount() + " in use)");
+		System.out.println("Hash functions in filter: " + filter.numHashes());
+		System.out.println("False positive rate of filter: " + 
+						   (new DecimalFormat("#0.0000")).
+						   format(filter.falsePositiveRate()));
+	}
+
+	/****************************************************************************
+	 *Prints out the size and the false positive rate of a dictionary's filter.
+	 *@param filter the filter.
+	 ***************************************************************************/
+	private void printStatistics(BloomFilter filter) {
+		System.out.println("Bits in filter: " + filter.numBits() + 
+						   " (" + filter.bitCount() + " set)");
+		System.out.println("Hash functions in filter: " + filter.numHashes());
+		System.out.println("False positive rate of filter: " + 
+						   (new DecimalFormat("#0.0000")).
+						   format(filter.falsePositiveRate()));
+	}
+
+	/****************************************************************************
+	 *Prints out various statistics about a dictionary mapped from a snapshot.
+	 *@param snapshot the dictionary.
+	 ***************************************************************************/
+	private void printStatistics(MappedDictionary snapshot) {
+		System.out.println("Words in dictionary: " + snapshot.size());
+		System.out.println("Size of mapped snapshot: " + 
+						   (snapshot.fileSize() / 1024) + " KiB");
+		System.out.println("First word in dictionary: " + snapshot.min());
+		System.out.println("Last word in dictionary: " + snapshot.max());
+		printStatistics(snapshot.filter());
+	}
+
+	/****************************************************************************
+	 *Prints out various statistics about a dictionary stored as a word graph.
+	 *@param graph the dictionary.
+	 ***************************************************************************/
+	private void printStatistics(DAWG graph) {
+		System.out.println("Words in dictionary: " + graph.size());
+		System.out.println("States in word graph: " + graph.states());
+		System.out.println("Edges in word graph: " + graph.edges());
+		System.out.println("Approximate size of word graph: " + 
+						   (graph.memoryUsage() / 1024) + " KiB");
+		System.out.println("First word in dictionary: " + graph.min());
+		System.out.println("Last word in dictionary: " + graph.max());
+	}
+
+	/****************************************************************************
+	 *Prints out various statistics about a dictionary stored as a hash table.
+	 *@param table the dictionary.
+	 ***************************************************************************/
+	private void printStatistics(HashDictionary table) {
+		System.out.println("Words in dictionary: " + table.size());
+		System.out.println("Slots in hash table: " + table.slots());
+		System.out.println("Bytes in word arena: " + table.arenaSize());
+		System.out.println("Approximate size of hash table: " + 
+						   (table.memoryUsage() / 1024) + " KiB");
+		System.out.println("First word in dictionary: " + table.min());
+		System.out.println("Last word in dictionary: " + table.max());
+	}
+
+	/****************************************************************************
+	 *Prints out the size and the build time of a deletion index.
+	 *@param index the index.
+	 ***************************************************************************/
+	private void printStatistics(DeletionIndex index) {
+		System.out.println("Entries in deletion index: " + index.entries());
+		System.out.println("Approximate size of deletion index: " + 
+						   (index.memoryUsage() / 1024) + " KiB");
+		System.out.println("Time used to build deletion index: " + 
+						   (index.buildTime() / 1000000 / 1000F) + 
+						   " seconds");
+	}
 
-		for (int j = 0; j < HVFR.length; j++) {
-			System.out.println("Intervals with fill rate of " + j + ": " + 
-							   HVFR[j]);
+	/*******************************************
+	 *Spellchecks a word without printing anything.
+	 *It first checks if it passes the dictionary's filter, then it checks if 
+	 *it is, in fact, in the dictionary. If not, then it finds suggestions.
+	 *Safe to call from several threads.
+	 *@param word the word to be spellchecked.
+	 *@return the result.
+	 ********************************************/
+	Result check(CharSequence word) {
+		long start = System.nanoTime();
+		Snapshot snapshot = current.get();
+		String s = word.toString();
+		int[] stats = new int[3];
+		boolean[] truncated = new boolean[1];
+		List<String> parts = null;
+
+		if (isInDictionary(snapshot, s) || 
+			(parts = compoundParts(snapshot, s)) != null) {
+			return new Result(s, true, Collections.<String>emptyList(), stats, 
+							  System.nanoTime() - start, false, parts);
 		}
+
+		List<String> hits = 
+			findSuggestions(snapshot, s, stats, start, truncated);
+
+		return new Result(s, false, hits, stats, System.nanoTime() - start, 
+						  truncated[0], null);
+	}
+
+	/*******************************************
+	 *Runs a string through the spellcheck process.
+	 *If it is in the dictionary, then it gives positive feedback. If not, 
+	 *then it prints possible solutions.
+	 *@param s the string to be spellchecked.
+	 ********************************************/
+    void spellCheck(String s) {
+		print(check(s));
     }
 
-	/*****************************************************************
-	 *Generates strings similar to the string parameter, 
-	 *where two characters next to each other have been swapped.
-	 *The amount of the strings generated is equal to the length of the 
-	 *string minus one.
-	 *@param s the string that will be used to generate similar strings.
-	 *@return a string array containing the generated strings
-	 ******************************************************************/
-    public String[] similar1(String s) {
-		char[] word = s.toCharArray();
-		char[] temp;
-		String[] words = new String[word.length - 1];
-	
-		for (int i = 0; i < words.length; i++) {
-			temp = word.clone();
-			words[i] = swap(i, i + 1, temp);
+	/*******************************************
+	 *Prints the result of spellchecking a word.
+	 *@param result the result.
+	 ********************************************/
+	private void print(Result result) {
+		if (result.isCompound()) {
+			System.out.println("The word \"" + result.word() + 
+							   "\" is a compound of " + result.parts() + ".");
+		} else if (result.isCorrect()) {
+			System.out.println("The word \"" + result.word() + 
+							   "\" is spelled correctly.");
+		} else {
+			System.out.println("The word \"" + result.word() + 
+							   "\" is not spelled correctly.");
+			printSuggestions(result);
 		}
+	}
 
-		return words;
-    }
-	
-	/********************************************************
-	 *Swaps two characters next to each other in a string.
-	 *@param a the first character's position in the string.
-	 *@param a the second character's position in the string.
-	 *@param word the string in question.
-	 *@return returns the string with the swapped characters.
-	 ********************************************************/
-    public String swap(int a, int b, char[] word) {
-		char temp = word[a];
-		word[a] = word[b];
-		word[b] = temp;
-	
-		return new String(word);
-    }
+	/***************************************************
+	 *Chooses how suggestions are found. The deletion index is built right 
+	 *away.
+	 *@param strategy the strategy to use.
+	 *@param maxDistance the maximum number of edits between a misspelled 
+	 *word and its suggestions. Strategy.EDITS only supports one edit.
+	 ****************************************************/
+	public void setStrategy(Strategy strategy, int maxDistance) {
+		if (strategy == Strategy.DELETIONS) {
+			current.get().deletions(maxDistance);
+		}
 
-	/*****************************************************************
-	 *Generates strings similar to the string parameter, 
-	 *where one character has been replaced with another from the alphabet.
-	 *The amount of the strings generated is equal to the sum of the product of 
-	 *the length of the string times the length of the alphabet being subtracted
-	 *by the length of the string.
-	 *@param s the string that will be used to generate similar strings.
-	 *@return a string array containing the generated strings
-	 ******************************************************************/
-    public String[] similar2(String s) {
-		String[] words = new String[(s.length() * alphabet.length) - s.length()];
-		char[] temp;
-		String temp2;
-		int k = 0;
-
-		for (int i = 0; i < s.length(); i++) {
-			temp = s.toCharArray();
-		
-			for (int j = 0; j < alphabet.length; j++) {
-				temp[i] = alphabet[j];
-				temp2 = new String(temp);
-		
-				if (!(temp2.equals(s))) words[k++] = (new String(temp2)); 
+		this.maxDistance = maxDistance;
+		this.strategy = strategy;
+		SuggestionCache cache = this.cache;
+		if (cache != null) cache.clear();
+	}
+
+	/***************************************************
+	 *Finds the words in the dictionary that are close to a misspelled word, 
+	 *without printing anything.
+	 *See the CandidateGenerator class, DAWG.search() and DeletionIndex.search()
+	 *for more details.
+	 *Recently found suggestions are answered from the cache, as long as the 
+	 *dictionary has not changed since. Safe to call from several threads.
+	 *@param word the misspelled word. It is not checked first.
+	 *@return the result, with the suggestions best first if they are ranked 
+	 *and otherwise in the order they were found, and whether the budget ran 
+	 *out before they were all found.
+	 ****************************************************/
+	Result suggest(CharSequence word) {
+		long start = System.nanoTime();
+		String s = word.toString();
+		int[] stats = new int[3];
+		boolean[] truncated = new boolean[1];
+		List<String> hits = 
+			findSuggestions(current.get(), s, stats, start, truncated);
+
+		return new Result(s, false, hits, stats, System.nanoTime() - start, 
+						  truncated[0], null);
+	}
+
+	/***************************************************
+	 *Finds suggestions in a snapshot within the budget. See suggest(). 
+	 *Suggestions that were cut short by the budget are not cached.
+	 *@param stats found, false positive and rejected candidates, as in 
+	 *Result, are added to this.
+	 *@param started when the request started, for the time budget.
+	 *@param truncated receives true if the budget ran out.
+	 *@return the suggestions. The list cannot be changed, since it may be 
+	 *shared with the cache.
+	 ****************************************************/
+	private List<String> findSuggestions(Snapshot snapshot, String s, 
+										 int[] stats, long started, 
+										 boolean[] truncated) {
+		long start = System.nanoTime();
+		long budgetNanos = this.budgetNanos;
+		SuggestionCache cache = this.cache;
+		Scorer scorer = this.scorer;
+		Strategy strategy = this.strategy;
+		int maxDistance = this.maxDistance;
+		int ranked = this.ranked;
+		long version = snapshot.version;
+
+		if (cache != null) {
+			List<String> cached = cache.get(s, version);
+
+			if (cached != null) {
+				metrics.recordCachedSuggestions(System.nanoTime() - start);
+				stats[0] += cached.size();
+				return cached;
 			}
+			metrics.cacheMisses.increment();
 		}
 
-		return words;
-    }
+		List<String> hits = new ArrayList<String>();
+		int[] own = new int[3];
 
-	/*****************************************************************
-	 *Generates strings similar to the string parameter, 
-	 *where one character is missing.
-	 *The amount of the strings generated is equal to the length of the string.
-	 *@param s the string that will be used to generate similar strings.
-	 *@return a string array containing the generated strings
-	 ******************************************************************/
-    public String[] similar3(String s) {
-		String[] words = new String[s.length()];
-		char[] temp1;
-		char[] temp2 = s.toCharArray();
-	
-		for (int i = 0; i < s.length(); i++) {
-			temp1 = new char[s.length() - 1];
-	    
-			for (int j = 0; j < temp1.length; j++) {
-				if (i != j) {
-					temp1[j] = temp2[j];
+		if (strategy == Strategy.TRIE) {
+			metrics.trieStates.add(snapshot.trie().search(s, maxDistance, hits));
+			own[0] += hits.size();
+		} else if (strategy == Strategy.DELETIONS) {
+			int checked = 
+				snapshot.deletions(maxDistance).search(s, maxDistance, hits);
+
+			metrics.deletionChecks.add(checked);
+			own[0] += hits.size();
+		} else {
+			CandidateGenerator generator = generator(snapshot);
+
+			generator.budget((budgetNanos > 0) ? started + budgetNanos : 0, 
+							 budgetCandidates);
+			if (ranked > 0) {
+				Scorer.TopK top = new Scorer.TopK(ranked);
+
+				generator.generate(s, scorer, top, own);
+				hits = top.words();
+			} else generator.generate(s, hits, own);
+			for (int i = 0; i < metrics.candidates.length; i++) {
+				metrics.candidates[i].add(generator.generated(i));
+			}
+			truncated[0] = generator.truncated();
+		}
+		if (ranked > 0 && strategy != Strategy.EDITS) {
+			hits = scorer.rank(s, hits, ranked, maxDistance);
+		}
+
+		hits = Collections.unmodifiableList(hits);
+		if (truncated[0]) metrics.truncatedSuggestions.increment();
+		else if (cache != null) cache.put(s, version, hits);
+		metrics.recordSuggestions(own, System.nanoTime() - start);
+		for (int i = 0; i < own.length; i++) stats[i] += own[i];
+		return hits;
+	}
+
+	/***************************************************
+	 *Gets the candidate generator of the calling thread for the dictionary 
+	 *of a snapshot. A thread only ever keeps one generator, so one that 
+	 *has gone back to waiting in a pool does not keep an old dictionary 
+	 *reachable for more than the one it last used.
+	 ****************************************************/
+	private CandidateGenerator generator(Snapshot snapshot) {
+		CandidateGenerator generator = generators.get();
+
+		if (generator == null || generator.dictionary() != snapshot.dict) {
+			generator = new CandidateGenerator(snapshot.dict, alphabet);
+			generators.set(generator);
+		}
+
+		return generator;
+	}
+
+	/***************************************************
+	 *Finds the most frequent words that start with a prefix, for 
+	 *type-ahead. Takes O(k log n) time however many words have the prefix.
+	 *See the Completer class for more details.
+	 *The completer is built the first time, and again after the dictionary 
+	 *has changed. Safe to call from several threads.
+	 *@param prefix the prefix.
+	 *@param k the greatest number of words to find.
+	 *@return the words, most frequent first.
+	 ****************************************************/
+	List<String> complete(String prefix, int k) {
+		return current.get().completer().complete(prefix, k);
+	}
+
+	/***************************************************
+	 *Sets the frequencies used to rank completions.
+	 *@param frequencies the frequency of each word. Words that are missing 
+	 *have the frequency 0.
+	 ****************************************************/
+	public synchronized void setFrequencies(Map<String, Integer> frequencies) {
+		this.frequencies = frequencies;
+		current.get().resetCompleter();
+		scorer = new Scorer(frequencies);
+
+		SuggestionCache cache = this.cache;
+		if (cache != null) cache.clear();
+	}
+
+	/***************************************************
+	 *Chooses whether suggestions are ranked. Ranked suggestions are scored 
+	 *by their frequency and the edits that made them, see the Scorer class, 
+	 *and only the best ones are kept. With Strategy.EDITS, the kinds of 
+	 *edits that cannot beat them are not even generated.
+	 *@param k the number of suggestions to keep, or 0 to keep every 
+	 *suggestion in the order it was found.
+	 ****************************************************/
+	public void setRanking(int k) {
+		ranked = k;
+
+		SuggestionCache cache = this.cache;
+		if (cache != null) cache.clear();
+	}
+
+	/***************************************************
+	 *Sets a budget for finding the suggestions for a word. When it runs 
+	 *out, the suggestions found so far are returned, and the result is 
+	 *marked as truncated. The cheapest kinds of edits are tried first, so 
+	 *the likeliest suggestions are usually found anyway. Only the EDITS 
+	 *strategy has a budget, as the others look their suggestions up in an 
+	 *index.
+	 *@param nanos the time a check may take, or 0 for no limit.
+	 *@param candidates the number of candidates that may be looked up for 
+	 *a word, or 0 for no limit.
+	 ****************************************************/
+	public void setBudget(long nanos, int candidates) {
+		budgetNanos = nanos;
+		budgetCandidates = candidates;
+	}
+
+	/***************************************************
+	 *Sets whether words that are not in the dictionary are accepted if 
+	 *they are compounds of words that are.
+	 *@param accept true to accept compounds.
+	 ****************************************************/
+	public void setCompounds(boolean accept) {
+		compounds = accept;
+	}
+
+	/***************************************************
+	 *Gets the metrics collected by this spellchecker.
+	 *@return the metrics.
+	 ****************************************************/
+	Metrics metrics() {
+		return metrics;
+	}
+
+	/***************************************************
+	 *Sets the number of misspelled words whose suggestions are cached.
+	 *@param size the size of the cache, or 0 to turn the cache off.
+	 ****************************************************/
+	public void setCacheSize(int size) {
+		cache = (size > 0) ? new SuggestionCache(size) : null;
+	}
+
+	/***************************************************
+	 *Adds a word to the dictionary. The word is queued, and the words 
+	 *added and removed within UPDATE_MILLIS are applied together by one 
+	 *update() in the background, so adding words one at a time does not 
+	 *copy the dictionary for each. Until then the word is not found. 
+	 *See flushWords().
+	 *@param s the word to be added.
+	 ****************************************************/
+	public void addWord(String s) {
+		synchronized (pending) {
+			pendingRemoved.remove(s);
+			pendingAdded.add(s);
+			scheduleFlush();
+		}
+	}
+
+	/***************************************************
+	 *Removes a word from the dictionary. The word is queued like the ones 
+	 *given to addWord(), and the last change to a word wins.
+	 *@param s the word to be removed.
+	 ****************************************************/
+	public void removeWord(String s) {
+		synchronized (pending) {
+			pendingAdded.remove(s);
+			pendingRemoved.add(s);
+			scheduleFlush();
+		}
+	}
+
+	/***************************************************
+	 *Applies the words queued by addWord() and removeWord() right away, 
+	 *instead of waiting for the background update.
+	 ****************************************************/
+	public void flushWords() {
+		HashSet<String> added, removed;
+
+		synchronized (pending) {
+			added = pendingAdded;
+			removed = pendingRemoved;
+			pendingAdded = new HashSet<String>();
+			pendingRemoved = new HashSet<String>();
+			flushing = false;
+		}
+		if (!added.isEmpty() || !removed.isEmpty()) update(added, removed);
+	}
+
+	/***************************************************
+	 *Makes sure the queued words are applied in the background. Must be 
+	 *called while holding pending.
+	 ****************************************************/
+	private void scheduleFlush() {
+		if (flushing) return;
+		flushing = true;
+		background().schedule(new Runnable() {
+				public void run() {
+					flushWords();
 				}
+			}, UPDATE_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/***************************************************
+	 *Adds and removes words, by building a new dictionary from the words 
+	 *of the current one and swapping it in. Calls that are already using 
+	 *the current dictionary are not affected. Changes are best made in 
+	 *batches, since each one copies the whole dictionary. Words queued by 
+	 *addWord() and removeWord() are not part of it.
+	 *@param added the words to be added.
+	 *@param removed the words to be removed. A word in both is removed.
+	 ****************************************************/
+	public void update(Collection<String> added, Collection<String> removed) {
+		synchronized (updating) {
+			Dictionary dict = current.get().dict;
+			HashSet<String> gone = new HashSet<String>(removed);
+			String[] words = new String[dict.size() + added.size()];
+			Iterator<String> iter = dict.words();
+			int n = 0;
+
+			while (iter.hasNext()) {
+				String w = iter.next();
+
+				if (!gone.contains(w)) words[n++] = w;
+			}
+			for (String w : added) {
+				if (!gone.contains(w)) words[n++] = w;
 			}
-	    
-			words[i] = new String(temp1);;
+			swap(build(Arrays.copyOf(words, n), store));
 		}
-	
-		return words;
-    }
+	}
+
+	/***************************************************
+	 *Reads the word list again and swaps in the new dictionary. Calls that 
+	 *are already using the current dictionary are not affected.
+	 *@param f the word list or snapshot.
+	 *@throws IOException if the file could not be read, in which case the 
+	 *current dictionary is kept.
+	 ****************************************************/
+	public void reload(File f) throws IOException {
+		synchronized (updating) {
+			swap(load(f, store, new WordListLoader(charset)));
+			metrics.reloads.increment();
+		}
+	}
+
+	/***************************************************
+	 *Runs reload() on a background thread.
+	 *@param f the word list or snapshot.
+	 *@return the result of the reload, which fails if reload() does.
+	 ****************************************************/
+	public Future<Void> reloadInBackground(final File f) {
+		return background().submit(new Callable<Void>() {
+				public Void call() throws IOException {
+					reload(f);
+					return null;
+				}
+			});
+	}
+
+	/***************************************************
+	 *Runs update() on a background thread.
+	 *@return the result of the update.
+	 ****************************************************/
+	public Future<Void> updateInBackground(final Collection<String> added, 
+										   final Collection<String> removed) {
+		return background().submit(new Callable<Void>() {
+				public Void call() {
+					update(added, removed);
+					return null;
+				}
+			});
+	}
+
+	/***************************************************
+	 *Reloads the word list in the background whenever the file changes.
+	 *A change is only loaded once the size and the time the file was 
+	 *modified have stayed the same for a whole period, so a file that is 
+	 *still being written is not swapped in half-finished.
+	 *Failed reloads are counted in the metrics, and the current dictionary 
+	 *is kept until the file can be read.
+	 *@param seconds how often to look at the file.
+	 *@throws IllegalStateException if the dictionary was not read from a 
+	 *file.
+	 ****************************************************/
+	public void watch(int seconds) {
+		final File f = source;
+
+		if (f == null) {
+			throw new IllegalStateException("The dictionary has no file");
+		}
+
+		//The file as it was loaded, and as it was the last time it was seen.
+		final long[] seen = { f.lastModified(), f.length(), 0, 0 };
+
+		seen[2] = seen[0];
+		seen[3] = seen[1];
+		background().scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					long modified = f.lastModified();
+					long length = f.length();
+
+					if (modified == seen[0] && length == seen[1]) return;
+					if (modified != seen[2] || length != seen[3]) {
+						//Still changing. Waits for it to settle.
+						seen[2] = modified;
+						seen[3] = length;
+						return;
+					}
+					try {
+						reload(f);
+						seen[0] = modified;
+						seen[1] = length;
+					} catch (IOException e) {
+						metrics.reloadFailures.increment();
+					} catch (RuntimeException e) {
+						metrics.reloadFailures.increment();
+					}
+				}
+			}, seconds, seconds, TimeUnit.SECONDS);
+	}
+
+	/***************************************************
+	 *Makes a snapshot of a new dictionary current. Whatever the strategy 
+	 *needs is built first, so the first calls that use the new snapshot 
+	 *do not have to wait for it. Must be called while updating.
+	 ****************************************************/
+	private void swap(Dictionary dict) {
+		Snapshot snapshot = new Snapshot(dict, ++snapshots);
+
+		if (strategy == Strategy.TRIE) snapshot.trie();
+		if (strategy == Strategy.DELETIONS) snapshot.deletions(maxDistance);
+		current.set(snapshot);
+	}
+
+	/***************************************************
+	 *Gets the thread that reloads and updates the dictionary in the 
+	 *background, starting it the first time.
+	 ****************************************************/
+	private synchronized ScheduledExecutorService background() {
+		if (background == null) {
+			background = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "dictionary-reload");
+
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		}
+
+		return background;
+	}
+
+	/***************************************************
+	 *Gets the dictionary currently in use.
+	 *@return the dictionary, which must not be changed.
+	 ****************************************************/
+	Dictionary dictionary() {
+		return current.get().dict;
+	}
+
+	/***************************************************
+	 *Checks if a word is in the dictionary, without printing anything.
+	 *Safe to call from several threads.
+	 *@param s the word to be checked.
+	 *@return true if the word is in the dictionary.
+	 ****************************************************/
+	boolean isSpelledCorrectly(String s) {
+		return isSpelledCorrectly(current.get(), s);
+	}
+
+	/***************************************************
+	 *Checks if a word is in the dictionary of a snapshot.
+	 ****************************************************/
+	private boolean isSpelledCorrectly(Snapshot snapshot, String s) {
+		return isInDictionary(snapshot, s) || isCompound(snapshot, s);
+	}
 
-	/*****************************************************************
-	 *Generates strings similar to the string parameter, 
-	 *where one character from the alphabet is added at the start, at the end, 
-	 *or somewhere in between.
-	 *The amount of the strings generated is equal to the product of the length 
-	 *of the string times the length of the alphabet.
-	 *@param s the string that will be used to generate similar strings.
-	 *@return a string array containing the generated strings
-	 ******************************************************************/
-    public String[] similar4(String s) {
-		String[] words = new String[s.length() * alphabet.length];
-		char[] temp1;
-		char[] temp2 = s.toCharArray();
+	/***************************************************
+	 *Checks if a word is in the dictionary of a snapshot itself, not 
+	 *counting compounds.
+	 ****************************************************/
+	private boolean isInDictionary(Snapshot snapshot, String s) {
+		Dictionary dict = snapshot.dict;
+		boolean passed = dict.mightContain(s);
+		boolean found = passed && dict.contains(s);
+
+		metrics.recordCheck(passed, found);
+		return found;
+	}
+
+	/***************************************************
+	 *Checks if a word that is not in the dictionary is a compound of 
+	 *words that are, if compounds are accepted.
+	 ****************************************************/
+	private boolean isCompound(Snapshot snapshot, String s) {
+		return compoundParts(snapshot, s) != null;
+	}
+
+	/***************************************************
+	 *Splits a word that is not in the dictionary into the words it is a 
+	 *compound of, if compounds are accepted.
+	 *@return the parts, or null if the word is not a compound.
+	 ****************************************************/
+	private List<String> compoundParts(Snapshot snapshot, String s) {
+		if (!compounds) return null;
+
+		List<String> parts = snapshot.compounds.segment(s);
+
+		if (parts != null) metrics.compoundWords.increment();
+		return parts;
+	}
+
+	/***************************************************
+	 *Checks a number of words at once, without printing anything. The 
+	 *words that pass the dictionary's filter are sorted and looked up 
+	 *together with Dictionary.containsAll(). Safe to call from several 
+	 *threads.
+	 *Words that are not are checked for compounds afterwards.
+	 *@param words the words, in any order.
+	 *@param n the number of words.
+	 *@param found receives true for each word that is in the dictionary, 
+	 *or is a compound.
+	 *@param stats counts found, false positive and rejected words, as in 
+	 *Result, or null. Compounds are not counted as found.
+	 ****************************************************/
+	void areSpelledCorrectly(String[] words, int n, boolean[] found, 
+							 int[] stats) {
+		Snapshot snapshot = current.get();
+
+		containsAll(snapshot.dict, words, n, found, stats);
+		for (int i = 0; i < n; i++) {
+			if (!found[i]) found[i] = isCompound(snapshot, words[i]);
+		}
+	}
+
+	/***************************************************
+	 *Looks up a number of words in a dictionary at once, without checking 
+	 *for compounds. See areSpelledCorrectly().
+	 ****************************************************/
+	private void containsAll(Dictionary dict, String[] words, int n, 
+							 boolean[] found, int[] stats) {
+		String[] sorted = new String[n];
+		int[] passed = new int[n]; //The indexes of the words that passed
+		int[] own = new int[3];
 		int m = 0;
 
-		for (int i = 0; i < s.length(); i++) {
-			temp1 = new char[s.length() + 1];
+		for (int i = 0; i < n; i++) {
+			found[i] = false;
+			if (dict.mightContain(words[i])) {
+				sorted[m] = words[i];
+				passed[m++] = i;
+			} else own[2]++;
+		}
+		Arrays.sort(sorted, 0, m);
 
-			for (int j = 0; j != i; j++) {
-				temp1[j] = temp2[j];
-			}
-	
-			for(int k = 0; k < alphabet.length; k++) {
-				temp1[i] = alphabet[k];
+		boolean[] hits = new boolean[m];
 
-				for(int l = i + 1; l < s.length(); l++) {
-					temp1[l] = temp2[l - 1];
-				} 
+		dict.containsAll(sorted, m, hits);
+		for (int j = 0; j < m; j++) {
+			int i = passed[j];
 
-				words[m++] = new String(temp1);
-			}
+			found[i] = hits[Arrays.binarySearch(sorted, 0, m, words[i])];
+			own[found[i] ? 0 : 1]++;
 		}
 
-		return words;
-    }
+		metrics.recordChecks(own);
+		if (stats != null) {
+			for (int i = 0; i < own.length; i++) stats[i] += own[i];
+		}
+	}
 
-	/*******************************************
-	 *Runs a string through the spellcheck process.
-	 *It first checks if its hash value is in the dictionary, then it checks if 
-	 *it is, in fact, in the dictionary.
-	 *If it is, then it gives positive feedback. If not, then it generates 
-	 *possible solutions.
-	 *@param s the string to be spellchecked.
-	 ********************************************/
-    void spellCheck(String s) {
-		if (dict.hashValues[dict.hash(s)]) {
-			if (dict.contains(s)) System.out.println("The word \"" + s + 
-													 "\" is spelled correctly.");
-			else {
-				System.out.println("The word \"" + s + 
-								   "\" is not spelled correctly.");
-				generateWords(s);
-			}
-		} else {
-			System.out.println("The word \"" + s + 
-							   "\" is not spelled correctly.");
-			generateWords(s);
-		} 
-    }
+	/***************************************************
+	 *Looks up a number of words at once like areSpelledCorrectly(), but 
+	 *without checking for compounds. Safe to call from several threads.
+	 *@param words the words, in any order.
+	 *@param n the number of words.
+	 *@param found receives true for each word that is in the dictionary.
+	 *@param stats counts found, false positive and rejected words, or null.
+	 ****************************************************/
+	void areInDictionary(String[] words, int n, boolean[] found, int[] stats) {
+		containsAll(current.get().dict, words, n, found, stats);
+	}
 
 	/***************************************************
 	 *Generates possible solutions for a misspelled word.
-	 *See the similar1(), similar2(), similar3(), similar4() methods for 
-	 *more details.
+	 *See the suggest() method for more details.
 	 *@param s the misspelled word.
 	 ****************************************************/
     public void generateWords(String s) {
-	
-		//stats[0]: The number of generated solutions that were found in the 
-		//dictionary.
-		//stats[1]: The number of generated solutions that were not in the 
-		//dictionary, but their hash values was in the hash table.
-		//stats[2]: The number of generated solutions that were not found in the
-		//hash table.
-	
-		int[] stats = new int[3];
-		long start, end; //Used to keep track of how much time the process took.
-
-		System.out.println("Suggestions:");
+		printSuggestions(suggest(s));
+    }
 
-		start = System.currentTimeMillis();
-	
-		checkWords(similar1(s), stats); 
-		checkWords(similar2(s), stats);
-		checkWords(similar3(s), stats);
-		checkWords(similar4(s), stats);
+	/***************************************************
+	 *Prints the suggestions for a misspelled word, and what was counted 
+	 *while finding them.
+	 *@param result the result of spellchecking the word.
+	 ****************************************************/
+	private void printSuggestions(Result result) {
+		System.out.println("Suggestions:" + (result.isTruncated() ? 
+											" (cut short by the budget)" : ""));
 
-		end = System.currentTimeMillis();
+		for (String hit : result.suggestions()) {
+			System.out.println("- " + hit);
+		}
 
-		System.out.println("Suggestions found: " + stats[0]);
-		System.out.println("Invalid suggestions found: " + stats[1]);
-		System.out.println("Non-words found: " + stats[2]);
+		//The number of generated solutions that were found in the dictionary.
+		System.out.println("Suggestions found: " + result.found());
+		//The number of generated solutions that were not in the dictionary, 
+		//but passed the dictionary's filter.
+		System.out.println("Invalid suggestions found: " + 
+						   result.falsePositives());
+		//The number of generated solutions that were rejected by the filter.
+		System.out.println("Non-words found: " + result.rejected());
+		if (result.falsePositives() + result.rejected() > 0) {
+			System.out.println("Measured false positive rate of filter: " + 
+							   (new DecimalFormat("#0.0000")).
+							   format((double) result.falsePositives() / 
+									  (result.falsePositives() + 
+									   result.rejected())));
+		}
 		System.out.println("Time used to find suggestions: " + 
-						   ((end - start) / 1000F) + " seconds");
-    }
+						   (result.nanos() / 1000000 / 1000F) + " seconds");
 
-	/***************************************************************************
-	 *Checks if the hash values of generated strings are in the hash table, and
-	 *then if they are, checks if the strings are in the dictionary itself.
-	 *Also keeps track of the number of strings that were in the dictionary when
-	 *their hash values were in the hash table, 
-	 *the number of strings that were not in the dictionary itself, but their 
-	 *hash values were in the hash table, 
-	 *and the number of strings whose hash values were not in the 
-	 *hash table at all.
-	 *@param words the generated strings to be checked
-	 *@param stats the array holding the numbers previously described.
-	 ***************************************************************************/
-    public void checkWords(String[] words, int[] stats) {
-		for (int i = 0; i < words.length; i++) {
-			if (dict.hashValues[dict.hash(words[i])]) {
-				if (dict.contains(words[i])) {
-					System.out.println("- " + words[i]);
-					stats[0]++;
-				} else stats[1]++;
-			} else stats[2]++;
+		SuggestionCache cache = this.cache;
+
+		if (cache != null) {
+			System.out.println("Suggestion cache hits/misses/evictions: " + 
+							   cache.hits() + "/" + cache.misses() + "/" + 
+							   cache.evictions());
 		}
-    }
+	}
 
 	/******************************************
 	 *The main method of the SpellChecker class.
 	 ******************************************/
     public static void main(String[] args) {
-		if (args.length != 1) {
-			System.out.println("USAGE: java SpellChecker ordbok_???.txt");
+		Store store = Store.TREE;
+		String compileTo = null;
+		String batch = null;
+		int cacheSize = -1;
+		boolean jmx = false;
+		boolean stats = false;
+		boolean compounds = true;
+		String frequencies = null;
+		int top = 0;
+		long budgetMicros = 0;
+		int budgetCandidates = 0;
+		Charset charset = null;
+		int logSeconds = 0;
+		int watchSeconds = 0;
+		int port = -1;
+		boolean pipe = false;
+		Strategy strategy = Strategy.EDITS;
+		int distance = 1;
+		int arg = 0;
+
+		while (arg < args.length - 1) {
+			if (args[arg].equals("-compact")) {
+				store = Store.GRAPH;
+				arg++;
+			} else if (args[arg].equals("-hash")) {
+				store = Store.HASH;
+				arg++;
+			} else if (args[arg].equals("-trie")) {
+				strategy = Strategy.TRIE;
+				arg++;
+			} else if (args[arg].equals("-deletions")) {
+				strategy = Strategy.DELETIONS;
+				arg++;
+			} else if (args[arg].equals("-distance") && arg + 2 < args.length) {
+				distance = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-frequencies") && 
+					   arg + 2 < args.length) {
+				frequencies = args[arg + 1];
+				arg += 2;
+			} else if (args[arg].equals("-budget") && arg + 2 < args.length) {
+				budgetMicros = Long.parseLong(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-candidates") && 
+					   arg + 2 < args.length) {
+				budgetCandidates = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-top") && arg + 2 < args.length) {
+				top = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-charset") && 
+					   arg + 2 < args.length) {
+				if (!args[arg + 1].equals("auto")) {
+					charset = Charset.forName(args[arg + 1]);
+				}
+				arg += 2;
+			} else if (args[arg].equals("-nocompounds")) {
+				compounds = false;
+				arg++;
+			} else if (args[arg].equals("-stats")) {
+				stats = true;
+				arg++;
+			} else if (args[arg].equals("-jmx")) {
+				jmx = true;
+				arg++;
+			} else if (args[arg].equals("-metrics") && arg + 2 < args.length) {
+				logSeconds = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-a")) {
+				pipe = true;
+				arg++;
+			} else if (args[arg].equals("-serve") && arg + 2 < args.length) {
+				port = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-watch") && arg + 2 < args.length) {
+				watchSeconds = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-cache") && arg + 2 < args.length) {
+				cacheSize = Integer.parseInt(args[arg + 1]);
+				arg += 2;
+			} else if (args[arg].equals("-batch") && arg + 2 < args.length) {
+				batch = args[arg + 1];
+				arg += 2;
+			} else if (args[arg].equals("-compile") && arg + 2 < args.length) {
+				compileTo = args[arg + 1];
+				arg += 2;
+			} else break;
+		}
+
+		if (arg != args.length - 1) {
+			System.out.println("USAGE: java SpellChecker [-compact | -hash] " + 
+							   "[-compile ordbok.dict] [-trie | -deletions] " + 
+							   "[-distance n] [-cache n] [-stats] [-jmx] " + 
+							   "[-metrics seconds] [-watch seconds] " + 
+							   "[-frequencies file] [-top k] " + 
+							   "[-budget microseconds] [-candidates n] " + 
+							   "[-nocompounds] " + 
+							   "[-charset ISO-8859-1|UTF-8|auto] " + 
+							   "[-batch file_or_directory] [-serve port] [-a] " +
+							   "ordbok_???.txt");
+			System.exit(0);
+		}
+
+		Builder builder = new Builder().dictionary(args[arg]).store(store).
+			strategy(strategy, distance);
+		SpellChecker grammarNazi = null;
+
+		if (cacheSize >= 0) builder.cacheSize(cacheSize);
+		if (frequencies != null) builder.frequencies(frequencies);
+		builder.ranked(top).charset(charset).
+			budget(budgetMicros * 1000, budgetCandidates).compounds(compounds);
+		try {
+			grammarNazi = builder.build();
+		} catch (IOException e) {
+			System.out.println("Oops. Something went wrong\n" + e.getMessage());
+			System.exit(1);
+		}
+
+		//Only the interactive program prints statistics unless asked to, so 
+		//batch runs, pipes and the server only pay for loading the dictionary.
+		boolean interactive = 
+			batch == null && compileTo == null && port < 0 && !pipe;
+
+		if (stats || interactive) grammarNazi.printStatistics();
+		if (watchSeconds > 0) grammarNazi.watch(watchSeconds);
+		if (logSeconds > 0) {
+			grammarNazi.metrics().startLogging(logSeconds, System.err);
+		}
+		if (jmx) {
+			try {
+				grammarNazi.metrics().register("default");
+			} catch (Exception e) {
+				System.out.println("Oops. Something went wrong\n" + 
+								   e.getMessage());
+			}
+		}
+
+		if (batch != null) {
+			BatchChecker checker = new BatchChecker(
+				grammarNazi, null, Runtime.getRuntime().availableProcessors());
+
+			try {
+				checker.check(new File(batch));
+			} catch (IOException e) {
+				System.out.println("Oops. Something went wrong\n" + 
+								   e.getMessage());
+			} finally {
+				checker.shutdown();
+			}
+			System.exit(0);
+		}
+
+		if (compileTo != null) {
+			grammarNazi.compile(compileTo);
+			System.exit(0);
+		}
+
+		if (pipe) {
+			try {
+				new PipeChecker(grammarNazi).run(
+					new BufferedReader(new InputStreamReader(
+						System.in, PipeChecker.ENCODING), 1 << 16), 
+					new BufferedWriter(new OutputStreamWriter(
+						System.out, PipeChecker.ENCODING), 1 << 16));
+			} catch (IOException e) {
+				System.err.println("Oops. Something went wrong\n" + 
+								   e.getMessage());
+				System.exit(1);
+			}
 			System.exit(0);
 		}
 
-		SpellChecker grammarNazi = new SpellChecker(args[0]);
+		if (port >= 0) {
+			try {
+				SpellServer server = new SpellServer(grammarNazi, port, 1024);
+
+				System.out.println("Listening on port " + server.port());
+				server.serve();
+			} catch (IOException e) {
+				System.out.println("Oops. Something went wrong\n" + 
+								   e.getMessage());
+				System.exit(1);
+			}
+			System.exit(0);
+		}
 
 		System.out.println("***************************************\n" +
 						   "Welcome to Norwegian SpellChecker r9k!\n" + 
@@ -305,8 +1550,9 @@ class SpellChecker {
 		String s = ""; 
 	
 		while (true) {
-			System.out.print("Please enter a word to be spellchecked" + 
-							 "(enter 'q' to quit): \n>");
+			System.out.print("Please enter a word to be spellchecked, or " + 
+							 "the start of a word followed by '*' to " + 
+							 "complete it (enter 'q' to quit): \n>");
 		
 			try {
 				s = in.readLine().toLowerCase();
@@ -320,7 +1566,13 @@ class SpellChecker {
 				System.exit(1);
 			}
 		
-			if (!(s.equals(""))) {
+			if (s.endsWith("*")) {
+				for (String word : 
+						 grammarNazi.complete(s.substring(0, s.length() - 1), 
+											  10)) {
+					System.out.println("- " + word);
+				}
+			} else if (!(s.equals(""))) {
 				char[] c = s.toCharArray();
 				boolean b = false;
 				for (int i = 0; i < c.length; i++) {
@@ -0,0 +1,521 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*****************************************************************************
+ *Serves a spellchecker over a local TCP socket, so the dictionary is only
+ *loaded once for any number of requests.
+ *
+ *The protocol is one request per line and one answer per line, in UTF-8.
+ *A client may send several requests before reading the answers, which
+ *come in the same order:
+ *
+ *  CHECK word...        OK followed by 1 or 0 for each word
+ *  SUGGEST word         OK followed by the suggestions, best first, and
+ *                       ... if the budget ran out before all were found
+ *  COMPLETE prefix k    OK followed by at most k completions, where k is
+ *                       from 1 to MAX_COMPLETIONS
+ *  QUIT                 closes the connection
+ *
+ *A request that cannot be understood is answered with ERR and a reason,
+ *and one that was turned away because the server is overloaded with BUSY.
+ *
+ *Every connection gets its own thread, a virtual thread when the Java
+ *version has them, and otherwise one from a fixed pool. The words of CHECK
+ *requests that arrive within a short window, from any connection, are
+ *looked up together by a few batch threads: they are sorted, and each
+ *distinct word is only looked up once, in one walk over the dictionary.
+ *The queue of waiting requests is bounded, as are the number of
+ *connections and of suggestion requests running at once, and a request
+ *that cannot get in within a short time is answered with BUSY rather than
+ *queued without bound.
+ *
+ *The main method is a load generator for a running server.
+ *****************************************************************************/
+class SpellServer {
+	private static final long WINDOW_NANOS = 100000; //How long a batch waits
+	private static final int BATCH_WORDS = 4096; //Words after which it stops
+	private static final long ADMIT_MILLIS = 50; //How long BUSY is held off
+	private static final long LOOKUP_MILLIS = 10000; //How long CHECK waits
+	static final int MAX_COMPLETIONS = 1000;
+
+	private final SpellChecker checker;
+	private final ServerSocket socket;
+	private final ExecutorService connections;
+	private final ExecutorService batchers;
+	private final BlockingQueue<Lookup> queue;
+	private final Semaphore connectionPermits;
+	private final Semaphore suggestionPermits;
+	private final Metrics metrics;
+	private volatile boolean closed;
+
+	/*************************************************************************
+	 *The words of a CHECK request, and whether each was found once the
+	 *batch it went into has been looked up, or why it could not be.
+	 *************************************************************************/
+	private static class Lookup {
+		final String[] words;
+		final boolean[] found;
+		final CountDownLatch done = new CountDownLatch(1);
+		String error; //Set before done is counted down if the batch failed
+
+		Lookup(String[] words) {
+			this.words = words;
+			this.found = new boolean[words.length];
+		}
+	}
+
+	/*************************************************************************
+	 *Starts a server on the loopback interface.
+	 *@param checker the spellchecker.
+	 *@param port the port, or 0 for any free port.
+	 *@param maxConnections the greatest number of open connections.
+	 *@throws IOException if the port could not be opened.
+	 *************************************************************************/
+	SpellServer(SpellChecker checker, int port, int maxConnections)
+		throws IOException {
+		int cpus = Runtime.getRuntime().availableProcessors();
+
+		this.checker = checker;
+		this.metrics = checker.metrics();
+		this.socket = 
+			new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+		this.connections = newConnectionExecutor(maxConnections);
+		this.batchers = Executors.newFixedThreadPool(cpus,
+													 daemons("spellserver-batch"));
+		this.queue = new ArrayBlockingQueue<Lookup>(64 * cpus);
+		this.connectionPermits = new Semaphore(maxConnections);
+		this.suggestionPermits = new Semaphore(2 * cpus);
+
+		for (int i = 0; i < cpus; i++) {
+			batchers.execute(new Runnable() {
+					public void run() {
+						batch();
+					}
+				});
+		}
+	}
+
+	/*************************************************************************
+	 *Makes an executor that runs each connection on a new virtual thread.
+	 *Virtual threads are looked up by reflection, so the server also runs
+	 *on Java versions without them, with a fixed pool of platform threads.
+	 *************************************************************************/
+	private static ExecutorService newConnectionExecutor(int maxConnections) {
+		try {
+			return (ExecutorService) Executors.class
+				.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			return Executors.newFixedThreadPool(maxConnections,
+												daemons("spellserver-connection"));
+		}
+	}
+
+	/*************************************************************************
+	 *Makes a thread factory for threads that do not keep the process alive.
+	 *************************************************************************/
+	private static ThreadFactory daemons(final String name) {
+		return new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, name);
+
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+
+	/******************************************
+	 *Gets the port the server listens on.
+	 *@return the port.
+	 ******************************************/
+	int port() {
+		return socket.getLocalPort();
+	}
+
+	/*************************************************************************
+	 *Accepts connections until the server is closed. A connection beyond
+	 *the greatest number is answered with BUSY and closed.
+	 *@throws IOException if the server socket fails.
+	 *************************************************************************/
+	void serve() throws IOException {
+		while (!closed) {
+			final Socket s;
+
+			try {
+				s = socket.accept();
+			} catch (SocketException e) {
+				if (closed) return;
+				throw e;
+			}
+
+			if (!connectionPermits.tryAcquire()) {
+				metrics.serverRejections.increment();
+				try {
+					s.getOutputStream().write(
+						"BUSY\n".getBytes(StandardCharsets.UTF_8));
+				} finally {
+					s.close();
+				}
+				continue;
+			}
+
+			connections.execute(new Runnable() {
+					public void run() {
+						try {
+							handle(s);
+						} finally {
+							connectionPermits.release();
+						}
+					}
+				});
+		}
+	}
+
+	/*************************************************************************
+	 *Stops accepting connections and stops the threads.
+	 *************************************************************************/
+	void close() throws IOException {
+		closed = true;
+		socket.close();
+		connections.shutdownNow();
+		batchers.shutdownNow();
+	}
+
+	/*************************************************************************
+	 *Answers the requests of a connection until it is closed.
+	 *************************************************************************/
+	private void handle(Socket s) {
+		try {
+			s.setTcpNoDelay(true);
+
+			BufferedReader in = new BufferedReader(new InputStreamReader(
+				s.getInputStream(), StandardCharsets.UTF_8));
+			Writer out = new BufferedWriter(new OutputStreamWriter(
+				s.getOutputStream(), StandardCharsets.UTF_8));
+			String line;
+
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.trim().split("\\s+");
+
+				if (fields[0].equalsIgnoreCase("QUIT")) break;
+
+				String answer;
+
+				//A request that breaks the checker must not take the
+				//connection, and the answers still waiting, down with it.
+				try {
+					answer = answer(fields);
+				} catch (RuntimeException e) {
+					answer = "ERR " + e;
+				}
+				out.write(answer);
+				out.write('\n');
+				//Answers are only sent once the client has sent everything
+				//it had, so pipelined requests share a write.
+				if (!in.ready()) out.flush();
+			}
+			out.flush();
+		} catch (IOException e) {
+			//The client went away. There is nobody to tell.
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				s.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/*************************************************************************
+	 *Answers a request.
+	 *@param fields the request split on whitespace.
+	 *@return the answer, without the line break.
+	 *************************************************************************/
+	private String answer(String[] fields) throws InterruptedException {
+		String command = fields[0].toUpperCase();
+
+		if (command.equals("CHECK") && fields.length > 1) {
+			Lookup lookup = new Lookup(Arrays.copyOfRange(fields, 1,
+														  fields.length));
+
+			if (!queue.offer(lookup, ADMIT_MILLIS, TimeUnit.MILLISECONDS)) {
+				metrics.serverRejections.increment();
+				return "BUSY";
+			}
+			if (!lookup.done.await(LOOKUP_MILLIS, TimeUnit.MILLISECONDS)) {
+				return "ERR timed out";
+			}
+			if (lookup.error != null) return "ERR " + lookup.error;
+
+			StringBuilder sb = new StringBuilder("OK");
+
+			for (int i = 0; i < lookup.found.length; i++) {
+				sb.append(lookup.found[i] ? " 1" : " 0");
+			}
+			return sb.toString();
+		} else if (command.equals("SUGGEST") && fields.length == 2) {
+			if (!suggestionPermits.tryAcquire(ADMIT_MILLIS,
+											  TimeUnit.MILLISECONDS)) {
+				metrics.serverRejections.increment();
+				return "BUSY";
+			}
+			try {
+				SpellChecker.Result result = checker.suggest(fields[1]);
+				String answer = join(result.suggestions());
+
+				return result.isTruncated() ? answer + " ..." : answer;
+			} finally {
+				suggestionPermits.release();
+			}
+		} else if (command.equals("COMPLETE") && fields.length == 3) {
+			int k;
+
+			try {
+				k = Integer.parseInt(fields[2]);
+			} catch (NumberFormatException e) {
+				return "ERR not a number: " + fields[2];
+			}
+			if (k < 1 || k > MAX_COMPLETIONS) {
+				return "ERR k must be from 1 to " + MAX_COMPLETIONS + ": " + k;
+			}
+			return join(checker.complete(fields[1], k));
+		}
+
+		return "ERR expected CHECK word..., SUGGEST word, COMPLETE prefix k " +
+			"or QUIT";
+	}
+
+	/*************************************************************************
+	 *Makes an OK answer from a list of words.
+	 *************************************************************************/
+	private static String join(List<String> words) {
+		StringBuilder sb = new StringBuilder("OK");
+
+		for (String w : words) sb.append(' ').append(w);
+		return sb.toString();
+	}
+
+	/*************************************************************************
+	 *Run by each batch thread: takes the waiting CHECK requests, for up to
+	 *a short window or until enough words have come, looks up their words
+	 *together and wakes the connections up. A batch that fails is answered 
+	 *with ERR, and the thread goes on with the next one.
+	 *************************************************************************/
+	private void batch() {
+		List<Lookup> lookups = new ArrayList<Lookup>();
+
+		try {
+			while (!closed) {
+				Lookup first = queue.take();
+				long end = System.nanoTime() + WINDOW_NANOS;
+				int words = first.words.length;
+
+				String error = "server closed";
+
+				lookups.clear();
+				lookups.add(first);
+				try {
+					while (words < BATCH_WORDS) {
+						Lookup next = queue.poll(end - System.nanoTime(),
+												 TimeUnit.NANOSECONDS);
+
+						if (next == null) break;
+						lookups.add(next);
+						words += next.words.length;
+					}
+
+					lookUp(lookups, words);
+					metrics.serverBatches.increment();
+					error = null;
+				} catch (RuntimeException e) {
+					error = e.toString();
+				} finally {
+					//Nobody is left waiting, whatever went wrong.
+					for (int i = 0; i < lookups.size(); i++) {
+						lookups.get(i).error = error;
+						lookups.get(i).done.countDown();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			//The server was closed.
+		}
+	}
+
+	/*************************************************************************
+	 *Looks up the words of a batch of requests. The words are sorted, so
+	 *each distinct word is looked up once, and all of them in one walk
+	 *over the dictionary.
+	 *@param lookups the requests.
+	 *@param n the number of words in them.
+	 *************************************************************************/
+	private void lookUp(List<Lookup> lookups, int n) {
+		String[] words = new String[n];
+		int k = 0;
+
+		for (int i = 0; i < lookups.size(); i++) {
+			String[] w = lookups.get(i).words;
+
+			System.arraycopy(w, 0, words, k, w.length);
+			k += w.length;
+		}
+		Arrays.sort(words);
+
+		int distinct = 0;
+
+		for (int i = 0; i < n; i++) {
+			if (distinct == 0 || !words[i].equals(words[distinct - 1])) {
+				words[distinct++] = words[i];
+			}
+		}
+
+		boolean[] found = new boolean[distinct];
+
+		checker.areSpelledCorrectly(words, distinct, found, null);
+		for (int i = 0; i < lookups.size(); i++) {
+			Lookup lookup = lookups.get(i);
+
+			for (int j = 0; j < lookup.words.length; j++) {
+				lookup.found[j] =
+					found[Arrays.binarySearch(words, 0, distinct,
+											  lookup.words[j])];
+			}
+		}
+	}
+
+	/******************************************
+	 *The main method of the SpellServer class, a load generator.
+	 ******************************************/
+	public static void main(String[] args) throws Exception {
+		int port = 7777;
+		int clients = 64;
+		int seconds = 10;
+		int words = 16;
+		int arg = 0;
+
+		while (arg < args.length - 1) {
+			if (args[arg].equals("-port")) port = Integer.parseInt(args[arg + 1]);
+			else if (args[arg].equals("-clients")) {
+				clients = Integer.parseInt(args[arg + 1]);
+			} else if (args[arg].equals("-seconds")) {
+				seconds = Integer.parseInt(args[arg + 1]);
+			} else if (args[arg].equals("-words")) {
+				words = Integer.parseInt(args[arg + 1]);
+			} else break;
+			arg += 2;
+		}
+
+		if (arg != args.length - 1) {
+			System.out.println("USAGE: java SpellServer [-port n] [-clients n] " +
+							   "[-seconds n] [-words per_request] ordbok_???.txt");
+			System.exit(0);
+		}
+
+		String[] list = new WordListLoader(null).load(new File(args[arg]));
+		String[] typos = new String[4096];
+		Random r = new Random(7);
+
+		//Replaces a letter of a random word, so most typos are misspelled.
+		for (int i = 0; i < typos.length; i++) {
+			char[] c = list[r.nextInt(list.length)].toCharArray();
+
+			c[r.nextInt(c.length)] = (char) ('a' + r.nextInt(26));
+			typos[i] = new String(c);
+		}
+
+		loadTest(port, clients, seconds, words, list, typos);
+	}
+
+	/*************************************************************************
+	 *Sends CHECK requests to a server from a number of connections for a
+	 *while, half of the words spelled right, and prints the throughput.
+	 *************************************************************************/
+	private static void loadTest(final int port, int clients, int seconds,
+								 final int perRequest, final String[] list,
+								 final String[] typos)
+		throws InterruptedException {
+		final AtomicLong checked = new AtomicLong();
+		final AtomicLong busy = new AtomicLong();
+		final AtomicBoolean stop = new AtomicBoolean();
+		Thread[] threads = new Thread[clients];
+
+		for (int c = 0; c < clients; c++) {
+			final long seed = c;
+
+			threads[c] = new Thread(new Runnable() {
+					public void run() {
+						Random r = new Random(seed);
+
+						try {
+							Socket s = new Socket(InetAddress.getLoopbackAddress(),
+												  port);
+
+							s.setTcpNoDelay(true);
+
+							BufferedReader in = new BufferedReader(
+								new InputStreamReader(s.getInputStream(),
+													  StandardCharsets.UTF_8));
+							Writer out = new BufferedWriter(new OutputStreamWriter(
+								s.getOutputStream(), StandardCharsets.UTF_8));
+
+							while (!stop.get()) {
+								StringBuilder sb = new StringBuilder("CHECK");
+
+								for (int i = 0; i < perRequest; i++) {
+									sb.append(' ').append(r.nextBoolean() ?
+														  list[r.nextInt(list.length)] :
+														  typos[r.nextInt(typos.length)]);
+								}
+								out.write(sb.append('\n').toString());
+								out.flush();
+
+								String answer = in.readLine();
+
+								if (answer == null) break;
+								if (answer.startsWith("OK")) {
+									checked.addAndGet(perRequest);
+								} else busy.incrementAndGet();
+							}
+							s.close();
+						} catch (IOException e) {
+							System.out.println("Oops. Something went wrong\n" +
+											   e.getMessage());
+						}
+					}
+				});
+			threads[c].start();
+		}
+
+		long start = System.nanoTime();
+
+		Thread.sleep(seconds * 1000L);
+		stop.set(true);
+		for (int c = 0; c < clients; c++) threads[c].join();
+
+		double time = (System.nanoTime() - start) / 1e9;
+
+		System.out.println(clients + " clients, " + perRequest +
+						   " words per request: " +
+						   (long) (checked.get() / time) + " words/s, " +
+						   busy.get() + " BUSY");
+	}
+}
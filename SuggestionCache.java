@@ -0,0 +1,135 @@
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*****************************************************************************
+ *A bounded cache from misspelled words to their suggestions.
+ *
+ *The cache is split into segments by the hash of the word, and each 
+ *segment is a small LRU map with its own lock, so concurrent callers 
+ *rarely wait for each other. Every entry remembers the version of the 
+ *dictionary it was found with, and is ignored once the dictionary has 
+ *changed.
+ *****************************************************************************/
+class SuggestionCache {
+	private static final int SEGMENTS = 16;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/*************************************************************************
+	 *The suggestions for a word, and the dictionary version they belong to.
+	 *************************************************************************/
+	private static class Entry {
+		final long version;
+		final List<String> suggestions;
+
+		Entry(long version, List<String> suggestions) {
+			this.version = version;
+			this.suggestions = suggestions;
+		}
+	}
+
+	/*************************************************************************
+	 *A part of the cache, a map kept in least recently used order that 
+	 *drops its eldest entry when it grows past its capacity. Callers lock 
+	 *the segment.
+	 *************************************************************************/
+	private class Segment {
+		final Map<String, Entry> map;
+
+		Segment(final int capacity) {
+			map = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+				//Entry alone would mean the Map.Entry this map inherits.
+				protected boolean removeEldestEntry(
+					Map.Entry<String, SuggestionCache.Entry> eldest) {
+					if (size() <= capacity) return false;
+					evictions.increment();
+					return true;
+				}
+			};
+		}
+	}
+
+	/*************************************************************************
+	 *Creates an empty cache.
+	 *@param capacity the greatest number of words held.
+	 *************************************************************************/
+	SuggestionCache(int capacity) {
+		int perSegment = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(perSegment);
+		}
+	}
+
+	private Segment segment(String s) {
+		int h = s.hashCode();
+
+		return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	/*************************************************************************
+	 *Gets the cached suggestions for a word.
+	 *@param s the misspelled word.
+	 *@param version the current version of the dictionary.
+	 *@return the suggestions, or null if they are not cached for this 
+	 *version of the dictionary.
+	 *************************************************************************/
+	List<String> get(String s, long version) {
+		Segment segment = segment(s);
+		Entry e;
+
+		synchronized (segment) {
+			e = segment.map.get(s);
+		}
+
+		if (e == null || e.version != version) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return e.suggestions;
+	}
+
+	/*************************************************************************
+	 *Caches the suggestions for a word.
+	 *@param s the misspelled word.
+	 *@param version the version of the dictionary they were found with.
+	 *@param suggestions the suggestions. They are handed out to every 
+	 *caller, so the list must be one that cannot be changed.
+	 *************************************************************************/
+	void put(String s, long version, List<String> suggestions) {
+		Segment segment = segment(s);
+
+		synchronized (segment) {
+			segment.map.put(s, new Entry(version, suggestions));
+		}
+	}
+
+	/******************************************
+	 *Removes every word from the cache.
+	 ******************************************/
+	void clear() {
+		for (int i = 0; i < SEGMENTS; i++) {
+			synchronized (segments[i]) {
+				segments[i].map.clear();
+			}
+		}
+	}
+
+	long hits() {
+		return hits.sum();
+	}
+
+	long misses() {
+		return misses.sum();
+	}
+
+	long evictions() {
+		return evictions.sum();
+	}
+}
@@ -0,0 +1,239 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*****************************************************************************
+ *Reads the words of a word list, much faster than a Scanner.
+ *
+ *The file is memory mapped and copied into a reusable buffer one large
+ *chunk at a time. A hand-written scanner splits the chunk on whitespace,
+ *and each word is decoded straight from the bytes into a string. A word
+ *cut off at the end of a chunk is moved to the start of the buffer
+ *before the next chunk is copied in after it.
+ *
+ *The encoding is either given or detected: a file that starts with a
+ *UTF-8 byte order mark, or whose bytes are all valid UTF-8, is read as
+ *UTF-8, and any other file as ISO-8859-1, which every byte is valid in.
+ *A given encoding must keep ASCII whitespace as single bytes, as these and 
+ *most 8-bit encodings do.
+ *****************************************************************************/
+class WordListLoader {
+	private static final int CHUNK_BYTES = 1 << 20;
+	private static final int DETECT_BYTES = 1 << 16; //Read by detect()
+
+	private final Charset charset; //The encoding, or null to detect it
+	private Charset used;          //The encoding of the last file read
+	private long bytes;            //The size of the last file read
+	private long nanos;            //The time it took to read it
+
+	/*************************************************************************
+	 *Creates a loader.
+	 *@param charset the encoding of the files, or null to detect it.
+	 *************************************************************************/
+	WordListLoader(Charset charset) {
+		this.charset = charset;
+	}
+
+	/*************************************************************************
+	 *Reads every word in a word list.
+	 *@param f the file.
+	 *@return the words, in the order of the file.
+	 *@throws IOException if the file could not be read.
+	 *************************************************************************/
+	String[] load(File f) throws IOException {
+		long start = System.nanoTime();
+		FileInputStream in = new FileInputStream(f);
+
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(f + " is too large for a word list");
+			}
+
+			MappedByteBuffer map =
+				channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			int from = 0;
+
+			used = charset;
+			if (hasByteOrderMark(map)) {
+				if (used == null) used = StandardCharsets.UTF_8;
+				if (used.equals(StandardCharsets.UTF_8)) from = 3;
+			}
+			if (used == null) {
+				used = isUtf8(map, false) ? StandardCharsets.UTF_8 :
+					StandardCharsets.ISO_8859_1;
+			}
+
+			String[] words = split(map, from);
+
+			bytes = size;
+			nanos = System.nanoTime() - start;
+			return words;
+		} finally {
+			in.close();
+		}
+	}
+
+	/*************************************************************************
+	 *Splits the bytes of a file into words and decodes them.
+	 *@param map the bytes of the file.
+	 *@param from the position of the first byte after any byte order mark.
+	 *@return the words.
+	 *************************************************************************/
+	private String[] split(ByteBuffer map, int from) {
+		byte[] buffer = new byte[CHUNK_BYTES];
+		String[] words = new String[Math.max(16, map.limit() / 10)];
+		int n = 0;
+		int kept = 0; //The bytes of a cut off word at the start of the buffer
+		int position = from;
+
+		while (position < map.limit() || kept > 0) {
+			int count = Math.min(buffer.length - kept, map.limit() - position);
+
+			map.position(position);
+			map.get(buffer, kept, count);
+			position += count;
+
+			int end = kept + count;
+			boolean last = position == map.limit();
+			int i = 0;
+
+			kept = 0;
+			while (i < end) {
+				while (i < end && isSpace(buffer[i])) i++;
+
+				int start = i;
+
+				while (i < end && !isSpace(buffer[i])) i++;
+				if (i == start) break;
+				if (i == end && !last) {
+					//The word may go on in the next chunk.
+					kept = end - start;
+					if (kept == buffer.length) {
+						buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					}
+					System.arraycopy(buffer, start, buffer, 0, kept);
+					break;
+				}
+				if (n == words.length) words = Arrays.copyOf(words, n * 2);
+				words[n++] = new String(buffer, start, i - start, used);
+			}
+		}
+
+		return Arrays.copyOf(words, n);
+	}
+
+	/*************************************************************************
+	 *Checks for the whitespace that separates words, the same as the
+	 *default delimiter of a Scanner within ASCII.
+	 *************************************************************************/
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t' ||
+			b == '\f' || b == 0x0B;
+	}
+
+	/*************************************************************************
+	 *Checks if a file starts with the UTF-8 byte order mark.
+	 *************************************************************************/
+	private static boolean hasByteOrderMark(ByteBuffer map) {
+		return map.limit() >= 3 && (map.get(0) & 0xFF) == 0xEF &&
+			(map.get(1) & 0xFF) == 0xBB && (map.get(2) & 0xFF) == 0xBF;
+	}
+
+	/*************************************************************************
+	 *Checks if the bytes of a file are valid UTF-8. Stops at the first
+	 *byte that is not.
+	 *@param map the bytes.
+	 *@param cut true if the bytes are only the start of the file, so that 
+	 *the last character may be cut off.
+	 *************************************************************************/
+	static boolean isUtf8(ByteBuffer map, boolean cut) {
+		int limit = map.limit();
+		int i = 0;
+
+		while (i < limit) {
+			int b = map.get(i++) & 0xFF;
+			int following;
+
+			if (b < 0x80) continue;
+			else if (b >= 0xC2 && b <= 0xDF) following = 1;
+			else if (b >= 0xE0 && b <= 0xEF) following = 2;
+			else if (b >= 0xF0 && b <= 0xF4) following = 3;
+			else return false;
+
+			if (i + following > limit) return cut;
+			for (; following > 0; following--) {
+				if ((map.get(i++) & 0xC0) != 0x80) return false;
+			}
+		}
+
+		return true;
+	}
+
+	/*************************************************************************
+	 *Detects the encoding of a file the same way as load(), but only from 
+	 *its first DETECT_BYTES bytes, so that a file of any size can be 
+	 *checked without reading it twice.
+	 *@param f the file.
+	 *@return UTF-8 or ISO-8859-1.
+	 *@throws IOException if the file could not be read.
+	 *************************************************************************/
+	static Charset detect(File f) throws IOException {
+		InputStream in = new FileInputStream(f);
+
+		try {
+			byte[] start = new byte[DETECT_BYTES];
+			int n = 0;
+
+			for (int read; n < start.length &&
+					 (read = in.read(start, n, start.length - n)) > 0; ) {
+				n += read;
+			}
+
+			ByteBuffer map = ByteBuffer.wrap(start, 0, n);
+
+			return (hasByteOrderMark(map) || isUtf8(map, n == start.length)) ?
+				StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+		} finally {
+			in.close();
+		}
+	}
+
+	/******************************************
+	 *Gets the encoding of the last file read.
+	 *@return the encoding, or null if no file has been read.
+	 ******************************************/
+	Charset charset() {
+		return used;
+	}
+
+	/******************************************
+	 *Gets the size of the last file read.
+	 *@return the size in bytes.
+	 ******************************************/
+	long bytes() {
+		return bytes;
+	}
+
+	/******************************************
+	 *Gets the time it took to read the last file.
+	 *@return the time in nanoseconds.
+	 ******************************************/
+	long nanos() {
+		return nanos;
+	}
+
+	/******************************************
+	 *Gets how fast the last file was read.
+	 *@return the throughput in megabytes per second.
+	 ******************************************/
+	double throughput() {
+		return (nanos == 0) ? 0 : bytes / 1e6 / (nanos / 1e9);
+	}
+}
@@ -0,0 +1,77 @@
+package spellchecker;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*****************************************************************************
+ *Building the dictionary and looking words up in it.
+ *****************************************************************************/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmarks {
+
+	/*************************************************************************
+	 *Loads the word list and builds a spellchecker from it.
+	 *************************************************************************/
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public SpellChecker load(WordList w) throws IOException {
+		return new SpellChecker(w.file.getPath());
+	}
+
+	/*************************************************************************
+	 *Builds a tree by adding the words one at a time, in the order of the 
+	 *list.
+	 *************************************************************************/
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public BST add(WordList w) {
+		BST t = new BST();
+
+		for (int i = 0; i < w.list.length; i++) t.add(w.list[i]);
+		return t;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public BST addAll(WordList w) {
+		BST t = new BST();
+
+		t.addAll(w.list);
+		return t;
+	}
+
+	@Benchmark
+	public boolean containsHit(WordList w) {
+		return w.tree.contains(w.word());
+	}
+
+	@Benchmark
+	public boolean containsMiss(WordList w) {
+		return w.tree.contains(w.typo());
+	}
+
+	@Benchmark
+	public boolean mightContain(WordList w) {
+		return w.tree.mightContain(w.typo());
+	}
+
+	/*************************************************************************
+	 *Hashes a word for the filter, as BST.hash() did before the filter 
+	 *was split out of the tree.
+	 *************************************************************************/
+	@Benchmark
+	public long hash(WordList w) {
+		return BloomFilter.hash(w.typo());
+	}
+}
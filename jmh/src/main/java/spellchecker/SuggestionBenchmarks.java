@@ -0,0 +1,78 @@
+package spellchecker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*****************************************************************************
+ *Generating and looking up suggestions for misspelled words: the baseline 
+ *similar1-4 and checkWords, the CandidateGenerator that replaced them, and 
+ *the whole way through generateWords() and check().
+ *****************************************************************************/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SuggestionBenchmarks {
+	private final int[] stats = new int[3];
+	private final List<String> found = new ArrayList<String>();
+
+	@Benchmark
+	public String[] similar1(WordList w) {
+		return w.baseline.similar1(w.typo());
+	}
+
+	@Benchmark
+	public String[] similar2(WordList w) {
+		return w.baseline.similar2(w.typo());
+	}
+
+	@Benchmark
+	public String[] similar3(WordList w) {
+		return w.baseline.similar3(w.typo());
+	}
+
+	@Benchmark
+	public String[] similar4(WordList w) {
+		return w.baseline.similar4(w.typo());
+	}
+
+	/*************************************************************************
+	 *Looks up the substitutions of a word, the largest set of candidates, 
+	 *including the time it takes to make them.
+	 *************************************************************************/
+	@Benchmark
+	public int[] checkWords(WordList w) {
+		w.baseline.checkWords(w.baseline.similar2(w.typo()), stats);
+		return stats;
+	}
+
+	@Benchmark
+	public List<String> generate(WordList w) {
+		found.clear();
+		w.generator.generate(w.typo(), found, stats);
+		return found;
+	}
+
+	@Benchmark
+	public SpellChecker generateWords(WordList w) {
+		w.checker.generateWords(w.typo());
+		return w.checker;
+	}
+
+	@Benchmark
+	public Object check(WordList w) {
+		return w.checker.check(w.typo());
+	}
+}
@@ -0,0 +1,94 @@
+package spellchecker;
+
+import java.io.*;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/*****************************************************************************
+ *A generated Norwegian-like word list, see Benchmark.generateWords(), and 
+ *everything the benchmarks build from it: the word list file, a 
+ *spellchecker, a binary search tree and misspellings of the words.
+ *
+ *The size and the order of the list are parameters, so the same run can 
+ *show how the tree copes with sorted and reversed input as well as with 
+ *shuffled.
+ *****************************************************************************/
+@State(Scope.Thread)
+public class WordList {
+	static final int TYPOS = 4096; //A power of two
+
+	@Param({"10000", "100000"})
+	public int words;
+
+	@Param({"sorted", "shuffled", "reversed"})
+	public String order;
+
+	String[] list;
+	File file;
+	SpellChecker checker;
+	BST tree;
+	Baseline baseline;
+	CandidateGenerator generator;
+	String[] typos;
+	private int next;
+	private PrintStream out;
+
+	/*************************************************************************
+	 *Generates the word list and writes it to a file. Everything the 
+	 *spellchecker prints is thrown away until the trial is over.
+	 *************************************************************************/
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		list = Benchmark.generateWords(words, order, 42);
+		file = File.createTempFile("ordbok", ".txt");
+		file.deleteOnExit();
+
+		Writer w = new BufferedWriter(new OutputStreamWriter(
+			new FileOutputStream(file), "ISO-8859-1"));
+
+		for (int i = 0; i < list.length; i++) w.write(list[i] + "\n");
+		w.close();
+
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+				public void write(int b) {
+				}
+
+				public void write(byte[] b, int off, int len) {
+				}
+			}));
+
+		checker = new SpellChecker(file.getPath());
+		checker.setCacheSize(0);
+		tree = new BST();
+		tree.addAll(list);
+		baseline = new Baseline(checker);
+		generator = new CandidateGenerator(tree, checker.alphabet);
+		typos = Benchmark.misspell(list, TYPOS, checker.alphabet, 7);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(out);
+		file.delete();
+	}
+
+	/*************************************************************************
+	 *Gets the next misspelled word, going round the misspellings.
+	 *************************************************************************/
+	String typo() {
+		return typos[next++ & (TYPOS - 1)];
+	}
+
+	/*************************************************************************
+	 *Gets the next word of the list, taken in a scattered order so that 
+	 *consecutive lookups do not walk the same path.
+	 *************************************************************************/
+	String word() {
+		return list[(int) ((next++ * 7919L) % list.length)];
+	}
+}